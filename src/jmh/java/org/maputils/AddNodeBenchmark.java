@@ -0,0 +1,45 @@
+package org.maputils;
+
+import org.maputils.suppliers.MapSupplier;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+@SuppressWarnings("unchecked")
+public class AddNodeBenchmark {
+
+    @Param({"1", "4", "16"})
+    public int depth;
+    // IDENTITY_HASH_MAP only finds the same key instances, and WEAK_HASH_MAP may drop entries while measuring
+    @Param({"HASH_MAP", "LINKED_HASH_MAP", "TREE_MAP", "CONCURRENT_HASH_MAP", "PERSISTENT_HASH_MAP", "COMPACT", "SHAPED"})
+    public MapSupplier mapSupplier;
+
+    private MapUtils mapUtils;
+    private String path;
+
+    @Setup
+    public void setup() {
+        this.mapUtils = new MapUtils();
+        this.mapUtils.setMapSupplier(this.mapSupplier);
+        StringBuilder sb = new StringBuilder("node0");
+        for (int i = 1; i < this.depth; i++) {
+            sb.append(".node").append(i);
+        }
+        this.path = sb.toString();
+    }
+
+    @Benchmark
+    public Map addNode() {
+        Map<Object, Object> target = this.mapSupplier.getSupplier().apply(1);
+        this.mapUtils.addNode(target, this.path);
+        return target;
+    }
+
+}
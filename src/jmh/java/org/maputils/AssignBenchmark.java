@@ -0,0 +1,59 @@
+package org.maputils;
+
+import org.maputils.suppliers.ListSupplier;
+import org.maputils.suppliers.MapSupplier;
+import org.maputils.suppliers.SetSupplier;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+@SuppressWarnings("unchecked")
+public class AssignBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+    // IDENTITY_HASH_MAP only finds the same key instances, and WEAK_HASH_MAP may drop entries while measuring
+    @Param({"HASH_MAP", "LINKED_HASH_MAP", "TREE_MAP", "CONCURRENT_HASH_MAP", "PERSISTENT_HASH_MAP", "COMPACT", "SHAPED"})
+    public MapSupplier mapSupplier;
+    // the defaults, to keep the number of combinations practical; others can be selected with -p
+    @Param({"ARRAY_LIST"})
+    public ListSupplier listSupplier;
+    @Param({"HASH_SET"})
+    public SetSupplier setSupplier;
+
+    private MapUtils mapUtils;
+    private Map<String, Object> document;
+    private Map<String, String> keys;
+
+    @Setup
+    public void setup() {
+        this.mapUtils = new MapUtils();
+        this.mapUtils.setMapSupplier(this.mapSupplier);
+        this.mapUtils.setListSupplier(this.listSupplier);
+        this.mapUtils.setSetSupplier(this.setSupplier);
+        this.document = new MockDocuments(this.mapSupplier, this.listSupplier, this.setSupplier).target(this.size);
+        String person = "people." + (this.size / 2);
+        this.keys = new LinkedHashMap<>();
+        this.keys.put("person.id", person + ".id");
+        this.keys.put("person.name.first", person + ".firstName");
+        this.keys.put("person.name.last", person + ".lastName");
+        this.keys.put("person.hobbies", person + ".hobbies");
+        this.keys.put("person.ssn", person + ".identifiers.0.value");
+    }
+
+    @Benchmark
+    public Map<String, Object> assignPaths() {
+        Map<String, Object> target = (Map) this.mapSupplier.getSupplier().apply(1);
+        this.mapUtils.assign(target, this.document, this.keys, true);
+        return target;
+    }
+
+}
@@ -0,0 +1,49 @@
+package org.maputils;
+
+import org.maputils.binary.BinaryDocument;
+import org.maputils.binary.BinaryWriter;
+import org.maputils.suppliers.ListSupplier;
+import org.maputils.suppliers.MapSupplier;
+import org.maputils.suppliers.SetSupplier;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinaryReadBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private MapUtils mapUtils;
+    private ByteBuffer buffer;
+    private String deepPath;
+
+    @Setup
+    public void setup() {
+        this.mapUtils = new MapUtils();
+        MockDocuments documents = new MockDocuments(MapSupplier.HASH_MAP, ListSupplier.ARRAY_LIST, SetSupplier.HASH_SET);
+        byte[] bytes = BinaryWriter.write(documents.target(this.size));
+        this.buffer = ByteBuffer.allocateDirect(bytes.length);
+        this.buffer.put(bytes).flip();
+        this.deepPath = "people." + (this.size / 2) + ".identifiers.0.value";
+    }
+
+    @Benchmark
+    public Optional<Object> readDeepBinary() {
+        return BinaryDocument.wrap(this.buffer, this.mapUtils).read(this.deepPath);
+    }
+
+    @Benchmark
+    public Optional<Object> readDeepDecoded() {
+        return this.mapUtils.read(BinaryDocument.wrap(this.buffer, this.mapUtils).toMap(), this.deepPath);
+    }
+
+}
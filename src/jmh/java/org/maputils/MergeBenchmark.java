@@ -0,0 +1,76 @@
+package org.maputils;
+
+import org.maputils.suppliers.ListSupplier;
+import org.maputils.suppliers.MapSupplier;
+import org.maputils.suppliers.SetSupplier;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * merge mutates its target, so each invocation merges into a fresh copy of the target. Per-invocation setup would cost
+ * more than the smaller merges themselves, so the copy is made inside the measured region instead; {@link #copy()}
+ * measures it alone, to be subtracted from the merge results.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+@SuppressWarnings("unchecked")
+public class MergeBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+    // IDENTITY_HASH_MAP only finds the same key instances, and WEAK_HASH_MAP may drop entries while measuring
+    @Param({"HASH_MAP", "LINKED_HASH_MAP", "TREE_MAP", "CONCURRENT_HASH_MAP", "PERSISTENT_HASH_MAP", "COMPACT", "SHAPED"})
+    public MapSupplier mapSupplier;
+    // the defaults, to keep the number of combinations practical; others can be selected with -p
+    @Param({"ARRAY_LIST"})
+    public ListSupplier listSupplier;
+    @Param({"HASH_SET"})
+    public SetSupplier setSupplier;
+
+    private MapUtils mapUtils;
+    private MockDocuments documents;
+    private Map<String, Object> original;
+    private Map<String, Object> source;
+    private Map<String, String> collectionKeys;
+
+    @Setup
+    public void setup() {
+        this.mapUtils = new MapUtils();
+        this.mapUtils.setMapSupplier(this.mapSupplier);
+        this.mapUtils.setListSupplier(this.listSupplier);
+        this.mapUtils.setSetSupplier(this.setSupplier);
+        this.documents = new MockDocuments(this.mapSupplier, this.listSupplier, this.setSupplier);
+        this.original = this.documents.target(this.size);
+        this.source = this.documents.source(this.size);
+        this.collectionKeys = new HashMap<>();
+        this.collectionKeys.put("people", "id");
+        this.collectionKeys.put("identifiers", "type");
+    }
+
+    @Benchmark
+    public Map<String, Object> copy() {
+        return (Map<String, Object>) this.documents.copy(this.original);
+    }
+
+    @Benchmark
+    public Map<String, Object> merge() {
+        Map<String, Object> target = this.copy();
+        this.mapUtils.merge(target, this.source);
+        return target;
+    }
+
+    @Benchmark
+    public Map<String, Object> mergeWithCollectionKeys() {
+        Map<String, Object> target = this.copy();
+        this.mapUtils.merge(target, this.source, this.collectionKeys);
+        return target;
+    }
+
+}
@@ -0,0 +1,126 @@
+package org.maputils;
+
+import org.maputils.suppliers.ListSupplier;
+import org.maputils.suppliers.MapSupplier;
+import org.maputils.suppliers.SetSupplier;
+
+import java.util.*;
+
+/**
+ * Builds synthetic documents shaped like mock-object-1.json and mock-object-2.json with a configurable number of people.
+ * All nodes are created through the given suppliers so benchmarks measure the selected implementations.
+ */
+@SuppressWarnings("rawtypes,unchecked")
+public class MockDocuments {
+
+    private static final String[] FIRST_NAMES = {"John", "Jane", "Jack", "Jill", "James", "Julia"};
+    private static final String[] LAST_NAMES = {"Doe", "Smith", "Wick", "Brown", "Jones", "Miller"};
+    private static final String[] HOBBIES = {"Hiking", "Painting", "Baking", "Tennis", "Gaming", "Cars", "Dogs"};
+
+    private final MapSupplier mapSupplier;
+    private final ListSupplier listSupplier;
+    private final SetSupplier setSupplier;
+
+    public MockDocuments(MapSupplier mapSupplier, ListSupplier listSupplier, SetSupplier setSupplier) {
+        this.mapSupplier = mapSupplier;
+        this.listSupplier = listSupplier;
+        this.setSupplier = setSupplier;
+    }
+
+    /**
+     * Creates a document modeled on mock-object-1.json.
+     * @param size The number of people in the document.
+     * @return The generated document.
+     */
+    public Map<String, Object> target(int size) {
+        Map<String, Object> document = this.map(1);
+        document.put("people", this.people(size, 0, "SSN"));
+        return document;
+    }
+
+    /**
+     * Creates a document modeled on mock-object-2.json: half of the people overlap with {@link #target(int)}
+     * and carry changed identifiers and additional hobbies, the other half are new.
+     * @param size The number of people in the document.
+     * @return The generated document.
+     */
+    public Map<String, Object> source(int size) {
+        Map<String, Object> document = this.map(2);
+        document.put("people", this.people(size, size / 2, "Nickname"));
+        List<Object> classes = this.listSupplier.getSupplier().apply(1);
+        Map<String, Object> course = this.map(2);
+        course.put("id", 1);
+        course.put("name", "Introduction to Baking");
+        classes.add(course);
+        document.put("classes", classes);
+        return document;
+    }
+
+    /**
+     * Copies a document so that benchmarks which mutate their input start from the same state on every invocation.
+     * @param value The value to copy.
+     * @return The copied value.
+     */
+    public Object copy(Object value) {
+        if (value instanceof Map) {
+            Map<Object, Object> source = (Map) value;
+            Map<Object, Object> copy = this.mapSupplier.getSupplier().apply(source.size());
+            for (Map.Entry<Object, Object> entry : source.entrySet()) {
+                copy.put(entry.getKey(), this.copy(entry.getValue()));
+            }
+            return copy;
+        } else if (value instanceof Collection) {
+            Collection<Object> source = (Collection) value;
+            List<Object> items = new ArrayList<>(source.size());
+            for (Object item : source) {
+                items.add(this.copy(item));
+            }
+            return this.collection(value instanceof Set, items);
+        }
+        return value;
+    }
+
+    private Collection<Object> people(int size, int offset, String identifierType) {
+        List<Object> people = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int id = offset + i;
+            Map<String, Object> person = this.map(8);
+            person.put("id", id);
+            person.put("firstName", FIRST_NAMES[id % FIRST_NAMES.length]);
+            person.put("lastName", LAST_NAMES[(id / FIRST_NAMES.length) % LAST_NAMES.length] + id);
+            List<Object> identifiers = this.listSupplier.getSupplier().apply(1);
+            Map<String, Object> identifier = this.map(2);
+            identifier.put("type", identifierType);
+            identifier.put("value", String.format("%03d-%02d-%04d", id % 1000, id % 100, id % 10000));
+            identifiers.add(identifier);
+            person.put("identifiers", identifiers);
+            person.put("age", 18 + id % 60);
+            List<Object> hobbies = this.listSupplier.getSupplier().apply(2);
+            hobbies.add(HOBBIES[id % HOBBIES.length]);
+            hobbies.add(HOBBIES[(id + offset + 1) % HOBBIES.length]);
+            person.put("hobbies", hobbies);
+            Set<Object> tags = this.setSupplier.getSupplier().apply(2);
+            tags.add(identifierType);
+            tags.add(FIRST_NAMES[id % FIRST_NAMES.length]);
+            person.put("tags", tags);
+            people.add(person);
+        }
+        return this.collection(false, people);
+    }
+
+    /**
+     * Adds all items at once, as adding them one at a time is quadratic for copy-on-write Lists.
+     */
+    private Collection<Object> collection(boolean set, List<Object> items) {
+        Collection<Object> collection = set ?
+                this.setSupplier.getSupplier().apply(items.size()) :
+                this.listSupplier.getSupplier().apply(items.size());
+        collection.addAll(items);
+        return collection;
+    }
+
+    private Map<String, Object> map(int size) {
+        return (Map) this.mapSupplier.getSupplier().apply(size);
+    }
+
+}
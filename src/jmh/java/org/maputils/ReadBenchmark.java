@@ -0,0 +1,59 @@
+package org.maputils;
+
+import org.maputils.suppliers.ListSupplier;
+import org.maputils.suppliers.MapSupplier;
+import org.maputils.suppliers.SetSupplier;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReadBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+    // IDENTITY_HASH_MAP only finds the same key instances, and WEAK_HASH_MAP may drop entries while measuring
+    @Param({"HASH_MAP", "LINKED_HASH_MAP", "TREE_MAP", "CONCURRENT_HASH_MAP", "PERSISTENT_HASH_MAP", "COMPACT", "SHAPED"})
+    public MapSupplier mapSupplier;
+    // the defaults, to keep the number of combinations practical; others can be selected with -p
+    @Param({"ARRAY_LIST"})
+    public ListSupplier listSupplier;
+    @Param({"HASH_SET"})
+    public SetSupplier setSupplier;
+
+    private MapUtils mapUtils;
+    private Map<String, Object> document;
+    private String deepPath;
+    private String indexPath;
+
+    @Setup
+    public void setup() {
+        this.mapUtils = new MapUtils();
+        this.document = new MockDocuments(this.mapSupplier, this.listSupplier, this.setSupplier).target(this.size);
+        this.deepPath = "people." + (this.size / 2) + ".identifiers.0.value";
+        this.indexPath = "people." + (this.size - 1);
+    }
+
+    @Benchmark
+    public Optional<Object> readShallow() {
+        return this.mapUtils.read(this.document, "people");
+    }
+
+    @Benchmark
+    public Optional<Object> readDeep() {
+        return this.mapUtils.read(this.document, this.deepPath);
+    }
+
+    @Benchmark
+    public Optional<Object> readListIndex() {
+        return this.mapUtils.read(this.document, this.indexPath);
+    }
+
+}
@@ -0,0 +1,125 @@
+package org.maputils;
+
+import java.util.*;
+
+/**
+ * A keys mapping for {@link MapUtils#assign(Map, Map, Map, boolean)} which has been compiled once for reuse across records.
+ * Source paths are pre-parsed, and target paths sharing a parent refer to the same intermediate node so that it is
+ * looked up or added at most once per record. Instances are immutable and may be shared between threads.
+ */
+public final class AssignPlan {
+
+    /**
+     * Path read from the source for each assignment.
+     */
+    final MapPath[] sourcePaths;
+    /**
+     * Intermediate node each assignment is written to, or -1 for the target itself.
+     */
+    final int[] parents;
+    /**
+     * Key each assignment is written to within its parent.
+     */
+    final String[] keys;
+    /**
+     * Whether an assignment replaces an intermediate node, requiring nodes resolved so far to be looked up again.
+     */
+    final boolean[] replacesNode;
+    /**
+     * Parent of each intermediate node, or -1 for the target itself.
+     */
+    final int[] nodeParents;
+    /**
+     * Key of each intermediate node within its parent.
+     */
+    final String[] nodeKeys;
+    /**
+     * Dot-notation path of each intermediate node within the target.
+     */
+    final String[] nodePaths;
+
+    private AssignPlan(MapPath[] sourcePaths, int[] parents, String[] keys, boolean[] replacesNode, int[] nodeParents, String[] nodeKeys, String[] nodePaths) {
+        this.sourcePaths = sourcePaths;
+        this.parents = parents;
+        this.keys = keys;
+        this.replacesNode = replacesNode;
+        this.nodeParents = nodeParents;
+        this.nodeKeys = nodeKeys;
+        this.nodePaths = nodePaths;
+    }
+
+    /**
+     * Compiles a keys mapping into a reusable AssignPlan.
+     * @param keys The paths to assign. Left-hand side contains paths to assign to target, right-hand side contains paths to read from source.
+     * @param assignPaths Toggles whether keys can contain nested paths.
+     * @return The compiled plan
+     */
+    public static AssignPlan compile(Map<String, String> keys, boolean assignPaths) {
+        List<MapPath> sourcePaths = new ArrayList<>();
+        List<Integer> parents = new ArrayList<>();
+        List<String> targetKeys = new ArrayList<>();
+        // intermediate nodes are identified by their parent and key
+        Map<String, Integer> nodeIds = new LinkedHashMap<>();
+        List<Integer> nodeParents = new ArrayList<>();
+        List<String> nodeKeys = new ArrayList<>();
+        List<String> nodePaths = new ArrayList<>();
+        if (keys != null) {
+            for (Map.Entry<String, String> entry : keys.entrySet()) {
+                int parent = -1;
+                String key = entry.getKey();
+                if (assignPaths && key.contains(".")) {
+                    MapPath targetPath = MapPath.compile(key);
+                    if (targetPath.isEmpty()) {
+                        continue;
+                    }
+                    int last = targetPath.size() - 1;
+                    for (int i = 0; i < last; i++) {
+                        String nodeKey = targetPath.getKey(i);
+                        String id = parent + ":" + nodeKey;
+                        Integer node = nodeIds.get(id);
+                        if (node == null) {
+                            node = nodeKeys.size();
+                            nodeIds.put(id, node);
+                            nodeParents.add(parent);
+                            nodeKeys.add(nodeKey);
+                            nodePaths.add(targetPath.getPrefix(i));
+                        }
+                        parent = node;
+                    }
+                    key = targetPath.getKey(last);
+                }
+                sourcePaths.add(MapPath.compile(entry.getValue()));
+                parents.add(parent);
+                targetKeys.add(key);
+            }
+        }
+        int size = targetKeys.size();
+        int[] parentIds = new int[size];
+        boolean[] replacesNode = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            parentIds[i] = parents.get(i);
+            replacesNode[i] = nodeIds.containsKey(parentIds[i] + ":" + targetKeys.get(i));
+        }
+        int[] nodeParentIds = new int[nodeParents.size()];
+        for (int i = 0; i < nodeParentIds.length; i++) {
+            nodeParentIds[i] = nodeParents.get(i);
+        }
+        return new AssignPlan(
+                sourcePaths.toArray(new MapPath[0]),
+                parentIds,
+                targetKeys.toArray(new String[0]),
+                replacesNode,
+                nodeParentIds,
+                nodeKeys.toArray(new String[0]),
+                nodePaths.toArray(new String[0])
+        );
+    }
+
+    /**
+     * @return The number of assignments in this plan.
+     */
+    public int size() {
+        return this.keys.length;
+    }
+
+}
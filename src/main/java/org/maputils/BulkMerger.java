@@ -0,0 +1,174 @@
+package org.maputils;
+
+import java.util.*;
+
+/**
+ * Performs {@link MapUtils#merge(Map, Map, Map)} for each of several sources in turn, indexing each keyed collection
+ * of the target by its collection key only once. The index is kept up to date as every following source is merged
+ * into it, and the collection itself is only rebuilt once all sources have been merged, so merging N sources into a
+ * keyed collection of M items costs O(N + M) rather than O(N * M). Any other write to a key whose collection is
+ * indexed rebuilds the collection first, so the result is the same as merging each source in turn.
+ */
+@SuppressWarnings("rawtypes,unchecked")
+class BulkMerger {
+
+    private final MapUtils mapUtils;
+    private final Map<String, String> collectionKeys;
+    /**
+     * Indexed collections by the node which holds them, then by key.
+     */
+    private final Map<Map, Map<String, IndexedCollection>> indexes = new IdentityHashMap<>();
+    /**
+     * Indexed collections in the order they were created.
+     */
+    private final List<IndexedCollection> pending = new ArrayList<>();
+
+    BulkMerger(MapUtils mapUtils, Map<String, String> collectionKeys) {
+        this.mapUtils = mapUtils;
+        this.collectionKeys = collectionKeys;
+    }
+
+    void merge(Map<String, Object> target, Iterable<? extends Map<String, Object>> sources) {
+        for (Map<String, Object> source : sources) {
+            this.mergeMap(target, source);
+        }
+        // collections nested in the items of another are indexed after it, so they are rebuilt first
+        for (int i = this.pending.size() - 1; i >= 0; i--) {
+            this.materialize(this.pending.get(i));
+        }
+    }
+
+    private void mergeMap(Map<String, Object> target, Map<String, Object> source) {
+        if (target == null || source == null) {
+            return;
+        }
+        MetricsRecorder recorder = this.mapUtils.recorder();
+        if (recorder != null) {
+            recorder.nodesVisited += source.size();
+        }
+        Map<String, IndexedCollection> nodeIndexes = this.indexes.get(target);
+        for (Map.Entry<String, Object> entry : source.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            IndexedCollection indexed = nodeIndexes != null ? nodeIndexes.get(key) : null;
+            if (indexed != null) {
+                if (this.mapUtils.isCollection(value) && this.mergeIndexed(indexed, (Collection<Object>) value)) {
+                    continue;
+                }
+                // any other write replaces or combines the collection, so it must be up to date first
+                this.materialize(indexed);
+            }
+            Object targetValue = target.get(key);
+            if (!target.containsKey(key)) {
+                target.put(key, value);
+            } else if (value instanceof Map) {
+                if (targetValue instanceof Map) {
+                    this.mergeMap((Map<String, Object>) targetValue, (Map<String, Object>) value);
+                } else {
+                    target.put(key, value);
+                }
+            } else if (this.mapUtils.isCollection(value) && this.mapUtils.isCollection(targetValue)) {
+                if (!this.index(target, key, (Collection<Object>) targetValue, (Collection<Object>) value)) {
+                    target.put(key, this.mapUtils.mergeCollection((Collection<Object>) targetValue, (Collection<Object>) value, this.collectionKeys, key));
+                }
+            } else {
+                target.put(key, value);
+            }
+        }
+    }
+
+    /**
+     * Indexes a collection of the target and merges the source into it, if {@link MapUtils#mergeCollection} would
+     * merge the two by collection key.
+     * @return Whether the collection was indexed.
+     */
+    private boolean index(Map<String, Object> node, String key, Collection<Object> target, Collection<Object> source) {
+        if (this.collectionKeys == null || !this.collectionKeys.containsKey(key)) {
+            return false;
+        }
+        Object listValue = source.size() > 0 ? source.iterator().next() : null;
+        Object targetValue = target.size() > 0 ? target.iterator().next() : null;
+        if (!(listValue instanceof Map && targetValue instanceof Map)) {
+            return false;
+        }
+        IndexedCollection indexed = new IndexedCollection(node, key, target, this.mapUtils.compileCollectionKey(this.collectionKeys.get(key)));
+        for (Object val : target) {
+            indexed.items.put(this.mapUtils.getCollectionKey((Map<String, Object>) val, indexed.collectionKey), (Map) val);
+        }
+        MetricsRecorder recorder = this.mapUtils.recorder();
+        if (recorder != null) {
+            recorder.collectionItemsMerged += target.size();
+        }
+        this.indexes.computeIfAbsent(node, n -> new HashMap<>()).put(key, indexed);
+        this.pending.add(indexed);
+        return this.mergeIndexed(indexed, source);
+    }
+
+    /**
+     * Merges the items of a source collection into an indexed collection by collection key.
+     * @return Whether the source was merged, which requires it to be empty or hold Maps.
+     */
+    private boolean mergeIndexed(IndexedCollection indexed, Collection<Object> source) {
+        Object listValue = source.size() > 0 ? source.iterator().next() : null;
+        if (listValue == null) {
+            // merging an empty collection leaves the target unchanged
+            return true;
+        }
+        if (!(listValue instanceof Map)) {
+            return false;
+        }
+        MetricsRecorder recorder = this.mapUtils.recorder();
+        if (recorder != null) {
+            recorder.collectionsMerged++;
+            recorder.collectionItemsMerged += source.size();
+        }
+        for (Object val : source) {
+            Object currentKey = this.mapUtils.getCollectionKey((Map<String, Object>) val, indexed.collectionKey);
+            if (indexed.items.containsKey(currentKey)) {
+                this.mergeMap((Map<String, Object>) indexed.items.get(currentKey), (Map<String, Object>) val);
+            } else {
+                indexed.items.put(currentKey, (Map) val);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replaces an indexed collection in its node with its merged items, and stops indexing it.
+     */
+    private void materialize(IndexedCollection indexed) {
+        if (indexed.materialized) {
+            return;
+        }
+        indexed.materialized = true;
+        Map<String, IndexedCollection> nodeIndexes = this.indexes.get(indexed.node);
+        nodeIndexes.remove(indexed.key);
+        if (nodeIndexes.isEmpty()) {
+            this.indexes.remove(indexed.node);
+        }
+        indexed.node.put(indexed.key, this.mapUtils.mergeCollectionItems(indexed.target, indexed.items.values(), indexed.key));
+    }
+
+    private static class IndexedCollection {
+
+        private final Map<String, Object> node;
+        private final String key;
+        /**
+         * The collection the index was built from, which determines the type of the merged collection.
+         */
+        private final Collection<Object> target;
+        private final CollectionKey collectionKey;
+        private final Map<Object, Map> items;
+        private boolean materialized;
+
+        private IndexedCollection(Map<String, Object> node, String key, Collection<Object> target, CollectionKey collectionKey) {
+            this.node = node;
+            this.key = key;
+            this.target = target;
+            this.collectionKey = collectionKey;
+            this.items = new LinkedHashMap<>(target.size() * 4 / 3 + 1);
+        }
+
+    }
+
+}
@@ -0,0 +1,165 @@
+package org.maputils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Performs {@link MapUtils#cloneDeep(Map, boolean)} from an explicit stack rather than by recursion, so trees of any
+ * depth can be copied. Each Map, List and Set is recreated using the configured suppliers, sized to the number of
+ * entries it is copied with; other values are shared with the source. A copy is linked into its parent as soon as it
+ * is created and filled when its task is popped, except that the items of a Set are only added once they have been
+ * filled themselves, as items must not change after they are added to a Set.
+ */
+@SuppressWarnings("rawtypes,unchecked")
+class Cloner {
+
+    private final MapUtils mapUtils;
+    /**
+     * The task of every container copied so far by its source, or null if shared subtrees are copied separately.
+     */
+    private final Map<Object, Task> copies;
+    private final Deque<Task> stack = new ArrayDeque<>();
+    /**
+     * The recorder to count copied nodes in, or null if they are not counted.
+     */
+    private final MetricsRecorder recorder;
+
+    Cloner(MapUtils mapUtils, boolean preserveIdentity, MetricsRecorder recorder) {
+        this.mapUtils = mapUtils;
+        this.copies = preserveIdentity ? new IdentityHashMap<>() : null;
+        this.recorder = recorder;
+    }
+
+    /**
+     * @return A copy of the given value, or the value itself if it is not a Map, List or Set.
+     */
+    Object copy(Object value) {
+        Object copy = this.copyOf(value);
+        Task task;
+        while ((task = this.stack.poll()) != null) {
+            if (task.items != null) {
+                this.addItems(task);
+            } else if (!task.filled) {
+                this.fill(task);
+            }
+        }
+        return copy;
+    }
+
+    private Object copyOf(Object value) {
+        Task task = this.taskOf(value);
+        return task != null ? task.copy : value;
+    }
+
+    /**
+     * @return The task which fills the copy of the given value, or null if it is not a Map, List or Set.
+     */
+    private Task taskOf(Object value) {
+        if (!isContainer(value)) {
+            return null;
+        }
+        Task task = this.copies != null ? this.copies.get(value) : null;
+        if (task == null) {
+            task = new Task(value, this.mapUtils.createCopy(value));
+            if (this.recorder != null) {
+                this.recorder.nodesCreated++;
+            }
+            if (this.copies != null) {
+                this.copies.put(value, task);
+            }
+            this.stack.push(task);
+        }
+        return task;
+    }
+
+    private void fill(Task task) {
+        task.filled = true;
+        MetricsRecorder recorder = this.recorder;
+        if (task.source instanceof Map) {
+            Map<String, Object> copy = (Map<String, Object>) task.copy;
+            // ConcurrentMaps do not permit null values
+            boolean skipNulls = copy instanceof ConcurrentMap;
+            Map<String, Object> source = (Map<String, Object>) task.source;
+            if (recorder != null) {
+                recorder.nodesVisited += source.size();
+            }
+            for (Map.Entry<String, Object> entry : source.entrySet()) {
+                Object value = entry.getValue();
+                if (value != null || !skipNulls) {
+                    copy.put(entry.getKey(), this.copyOf(value));
+                }
+            }
+            return;
+        }
+        Collection<Object> source = (Collection<Object>) task.source;
+        if (recorder != null) {
+            recorder.nodesVisited += source.size();
+        }
+        Object[] items = new Object[source.size()];
+        if (!(task.copy instanceof Set)) {
+            int i = 0;
+            for (Object item : source) {
+                items[i++] = this.copyOf(item);
+            }
+            ((Collection<Object>) task.copy).addAll(Arrays.asList(items));
+            return;
+        }
+        // pushed before the items' tasks so that it is popped after them
+        Task add = new Task(null, task.copy);
+        add.items = items;
+        add.itemTasks = new Task[items.length];
+        this.stack.push(add);
+        int i = 0;
+        for (Object item : source) {
+            Task itemTask = this.taskOf(item);
+            add.itemTasks[i] = itemTask;
+            items[i++] = itemTask != null ? itemTask.copy : item;
+        }
+    }
+
+    private void addItems(Task task) {
+        if (this.copies != null) {
+            // an item shared with a node copied earlier may still be waiting on the stack below this task
+            List<Task> unfilled = null;
+            for (Task itemTask : task.itemTasks) {
+                if (itemTask != null && !itemTask.filled) {
+                    if (unfilled == null) {
+                        unfilled = new ArrayList<>();
+                    }
+                    unfilled.add(itemTask);
+                }
+            }
+            if (unfilled != null) {
+                this.stack.push(task);
+                for (Task itemTask : unfilled) {
+                    this.stack.push(itemTask);
+                }
+                return;
+            }
+        }
+        ((Collection<Object>) task.copy).addAll(Arrays.asList(task.items));
+    }
+
+    static boolean isContainer(Object value) {
+        return value instanceof Map || value instanceof List || value instanceof Set;
+    }
+
+    private static final class Task {
+
+        private final Object source;
+        private final Object copy;
+        /**
+         * The copied items to add to a Set once they have been filled, or null for a task which fills its copy.
+         */
+        private Object[] items;
+        private Task[] itemTasks;
+        private boolean filled;
+
+        private Task(Object source, Object copy) {
+            this.source = source;
+            this.copy = copy;
+        }
+
+    }
+
+}
@@ -0,0 +1,96 @@
+package org.maputils;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A primary identifier from collectionKeys compiled once into the paths of its parts.
+ * Single keys identify an item by the value at their path, and composite keys by a {@link Tuple} of the values at
+ * each of their paths. Values are compared by their String form, so "1", 1 and 1L identify the same item; Strings,
+ * the usual case, are used as they are.
+ */
+final class CollectionKey {
+
+    private final MapUtils mapUtils;
+    private final MapPath[] parts;
+
+    private CollectionKey(MapUtils mapUtils, MapPath[] parts) {
+        this.mapUtils = mapUtils;
+        this.parts = parts;
+    }
+
+    /**
+     * @param collectionKey A dot-notation path, or several separated by commas for a composite key.
+     */
+    static CollectionKey compile(MapUtils mapUtils, String collectionKey) {
+        String[] keys = collectionKey.contains(",") ? collectionKey.split(",") : new String[] {collectionKey};
+        MapPath[] parts = new MapPath[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            parts[i] = mapUtils.compilePath(keys[i]);
+        }
+        return new CollectionKey(mapUtils, parts);
+    }
+
+    /**
+     * @return The identifier of the given item, or null if a single key does not resolve.
+     */
+    Object extract(Map<String, Object> item) {
+        if (this.parts.length == 1) {
+            return normalize(this.mapUtils.resolve(item, this.parts[0]));
+        }
+        Object[] values = new Object[this.parts.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = normalize(this.mapUtils.resolve(item, this.parts[i]));
+        }
+        return new Tuple(values);
+    }
+
+    /**
+     * @return The String form of a value, which also keeps mutable values from being used as hash keys.
+     */
+    private static String normalize(Object value) {
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        return value.toString();
+    }
+
+    /**
+     * The values of a composite key, with their hash computed once.
+     * Missing parts are retained as nulls so that values cannot shift into a neighbouring part.
+     */
+    static final class Tuple {
+
+        private final Object[] values;
+        private final int hash;
+
+        Tuple(Object[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Tuple)) {
+                return false;
+            }
+            Tuple tuple = (Tuple) o;
+            return this.hash == tuple.hash && Arrays.equals(this.values, tuple.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(this.values);
+        }
+
+    }
+
+}
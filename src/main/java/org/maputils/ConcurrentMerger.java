@@ -0,0 +1,106 @@
+package org.maputils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Performs {@link MapUtils#merge(Map, Map, Map)} into a target which other threads are merging into at the same time.
+ * On ConcurrentMap nodes, missing keys are added atomically and nested Maps are descended into without locking;
+ * every other write to an existing key, including collection merges, holds a lock striped by node and key so that
+ * updates to the same slot are serialized rather than lost. Nodes which are not ConcurrentMaps are locked as a whole,
+ * always from parent to child, so locks are acquired in a consistent order as long as subtrees are not shared.
+ */
+@SuppressWarnings("rawtypes,unchecked")
+class ConcurrentMerger {
+
+    /**
+     * Shared by all instances so that every thread merging into the same node and key uses the same lock.
+     */
+    private static final Object[] LOCKS = new Object[256];
+
+    static {
+        for (int i = 0; i < LOCKS.length; i++) {
+            LOCKS[i] = new Object();
+        }
+    }
+
+    private final MapUtils mapUtils;
+    private final Map<String, String> collectionKeys;
+
+    ConcurrentMerger(MapUtils mapUtils, Map<String, String> collectionKeys) {
+        this.mapUtils = mapUtils;
+        this.collectionKeys = collectionKeys;
+    }
+
+    void merge(Map<String, Object> target, Map<String, Object> source) {
+        if (target instanceof ConcurrentMap) {
+            ConcurrentMap<String, Object> concurrentTarget = (ConcurrentMap<String, Object>) target;
+            for (Map.Entry<String, Object> entry : source.entrySet()) {
+                // ConcurrentMaps do not permit null keys or values
+                if (entry.getKey() != null && entry.getValue() != null) {
+                    this.mergeEntry(concurrentTarget, entry.getKey(), entry.getValue());
+                }
+            }
+        } else {
+            synchronized (target) {
+                this.mergeLocked(target, source);
+            }
+        }
+    }
+
+    private void mergeEntry(ConcurrentMap<String, Object> target, String key, Object value) {
+        Object targetValue = target.get(key);
+        if (targetValue == null) {
+            targetValue = target.putIfAbsent(key, value);
+            if (targetValue == null) {
+                return;
+            }
+        }
+        if (value instanceof Map && targetValue instanceof Map) {
+            this.merge((Map<String, Object>) targetValue, (Map<String, Object>) value);
+            return;
+        }
+        Object current;
+        synchronized (lockFor(target, key)) {
+            // re-read, as another thread may have replaced the value before the lock was acquired
+            current = target.get(key);
+            if (!(value instanceof Map && current instanceof Map)) {
+                if (this.mapUtils.isCollection(value) && this.mapUtils.isCollection(current)) {
+                    target.put(key, this.mapUtils.mergeCollection((Collection<Object>) current, (Collection<Object>) value, this.collectionKeys, key));
+                } else {
+                    target.put(key, value);
+                }
+                return;
+            }
+        }
+        // descend outside of the lock; striped locks are never held while acquiring another lock
+        this.merge((Map<String, Object>) current, (Map<String, Object>) value);
+    }
+
+    private void mergeLocked(Map<String, Object> target, Map<String, Object> source) {
+        for (Map.Entry<String, Object> entry : source.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            Object targetValue = target.get(key);
+            if (!target.containsKey(key)) {
+                target.put(key, value);
+            } else if (value instanceof Map) {
+                if (targetValue instanceof Map) {
+                    this.merge((Map<String, Object>) targetValue, (Map<String, Object>) value);
+                } else {
+                    target.put(key, value);
+                }
+            } else if (this.mapUtils.isCollection(value) && this.mapUtils.isCollection(targetValue)) {
+                target.put(key, this.mapUtils.mergeCollection((Collection<Object>) targetValue, (Collection<Object>) value, this.collectionKeys, key));
+            } else {
+                target.put(key, value);
+            }
+        }
+    }
+
+    private static Object lockFor(Map<String, Object> target, String key) {
+        int h = System.identityHashCode(target) * 31 + key.hashCode();
+        return LOCKS[(h ^ (h >>> 16)) & (LOCKS.length - 1)];
+    }
+
+}
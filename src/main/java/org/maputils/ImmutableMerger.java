@@ -0,0 +1,175 @@
+package org.maputils;
+
+import org.maputils.collections.PersistentHashMap;
+import org.maputils.collections.PersistentVector;
+
+import java.util.*;
+
+/**
+ * Performs {@link MapUtils#merge(Map, Map, Map)} without modifying the target or source.
+ * Only nodes along changed paths are copied; every unchanged subtree of the target is shared with the result.
+ * Copies of {@link PersistentHashMap} and {@link PersistentVector} nodes take constant time and share their structure,
+ * other nodes are copied using the configured suppliers.
+ */
+@SuppressWarnings("rawtypes,unchecked")
+class ImmutableMerger {
+
+    private final MapUtils mapUtils;
+    private final Map<String, String> collectionKeys;
+
+    ImmutableMerger(MapUtils mapUtils, Map<String, String> collectionKeys) {
+        this.mapUtils = mapUtils;
+        this.collectionKeys = collectionKeys;
+    }
+
+    /**
+     * @return The merged Map, or target itself if merging leaves it unchanged.
+     */
+    Map<String, Object> merge(Map<String, Object> target, Map<String, Object> source) {
+        Map<String, Object> result = null;
+        for (Map.Entry<String, Object> entry : source.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            Object targetValue = target.get(key);
+            boolean exists = targetValue != null || target.containsKey(key);
+            Object merged;
+            if (!exists) {
+                merged = value;
+            } else if (value instanceof Map) {
+                merged = targetValue instanceof Map ?
+                        this.merge((Map<String, Object>) targetValue, (Map<String, Object>) value) :
+                        value;
+            } else if (this.mapUtils.isCollection(value) && this.mapUtils.isCollection(targetValue)) {
+                merged = this.mergeCollection((Collection<Object>) targetValue, (Collection<Object>) value, key);
+            } else {
+                merged = value;
+            }
+            boolean unchanged = exists && (merged == targetValue
+                    || !(merged instanceof Map || merged instanceof Collection) && Objects.equals(merged, targetValue));
+            if (!unchanged) {
+                if (result == null) {
+                    result = this.copy(target);
+                }
+                result.put(key, merged);
+            }
+        }
+        return result != null ? result : target;
+    }
+
+    private Collection<Object> mergeCollection(Collection<Object> target, Collection<Object> source, String key) {
+        Object listValue = source.size() > 0 ? source.iterator().next() : null;
+        Object targetValue = target.size() > 0 ? target.iterator().next() : null;
+        if (listValue == null) {
+            return target;
+        }
+        if (listValue instanceof Map && targetValue instanceof Map && this.collectionKeys != null && this.collectionKeys.containsKey(key)) {
+            return this.mergeKeyedCollection(target, source, this.mapUtils.compileCollectionKey(this.collectionKeys.get(key)));
+        }
+        return this.mergeUniqueCollectionItems(target, source);
+    }
+
+    private Collection<Object> mergeKeyedCollection(Collection<Object> target, Collection<Object> source, CollectionKey collectionKey) {
+        Map<Object, Integer> positions = new HashMap<>(target.size() * 4 / 3 + 1);
+        boolean duplicates = false;
+        int position = 0;
+        for (Object val : target) {
+            duplicates |= positions.put(this.mapUtils.getCollectionKey((Map<String, Object>) val, collectionKey), position++) != null;
+        }
+        if (duplicates || !(target instanceof List)) {
+            return this.rebuildKeyedCollection(target, source, collectionKey);
+        }
+        List<Object> targetList = (List<Object>) target;
+        List<Object> result = null;
+        Map<Object, Map<String, Object>> added = new LinkedHashMap<>();
+        for (Object val : source) {
+            Object currentKey = this.mapUtils.getCollectionKey((Map<String, Object>) val, collectionKey);
+            Integer index = positions.get(currentKey);
+            if (index != null) {
+                Map<String, Object> current = (Map<String, Object>) (result != null ? result : targetList).get(index);
+                Map<String, Object> merged = this.merge(current, (Map<String, Object>) val);
+                if (merged != current) {
+                    if (result == null) {
+                        result = (List<Object>) this.copy(target);
+                    }
+                    result.set(index, merged);
+                }
+            } else if (added.containsKey(currentKey)) {
+                added.put(currentKey, this.merge(added.get(currentKey), (Map<String, Object>) val));
+            } else {
+                added.put(currentKey, (Map<String, Object>) val);
+            }
+        }
+        if (!added.isEmpty()) {
+            if (result == null) {
+                result = (List<Object>) this.copy(target);
+            }
+            result.addAll(added.values());
+        }
+        return result != null ? result : target;
+    }
+
+    /**
+     * Handles Sets and targets with duplicate identifiers, which merge collapses into a single item.
+     */
+    private Collection<Object> rebuildKeyedCollection(Collection<Object> target, Collection<Object> source, CollectionKey collectionKey) {
+        Map<Object, Map<String, Object>> targetValues = new LinkedHashMap<>(target.size() * 4 / 3 + 1);
+        for (Object val : target) {
+            targetValues.put(this.mapUtils.getCollectionKey((Map<String, Object>) val, collectionKey), (Map<String, Object>) val);
+        }
+        boolean changed = targetValues.size() != target.size();
+        for (Object val : source) {
+            Object currentKey = this.mapUtils.getCollectionKey((Map<String, Object>) val, collectionKey);
+            Map<String, Object> current = targetValues.get(currentKey);
+            if (current != null || targetValues.containsKey(currentKey)) {
+                Map<String, Object> merged = this.merge(current, (Map<String, Object>) val);
+                if (merged != current) {
+                    targetValues.put(currentKey, merged);
+                    changed = true;
+                }
+            } else {
+                targetValues.put(currentKey, (Map<String, Object>) val);
+                changed = true;
+            }
+        }
+        return changed ? this.mapUtils.mergeCollectionItems(target, targetValues.values()) : target;
+    }
+
+    private Collection<Object> mergeUniqueCollectionItems(Collection<Object> target, Collection<Object> source) {
+        Set<StructuralKey> existing = new HashSet<>(target.size() * 4 / 3 + 1);
+        for (Object val : target) {
+            if (!existing.add(new StructuralKey(val))) {
+                // merge collapses duplicates already present in the target
+                return this.mapUtils.mergeUniqueCollectionItems(target, source);
+            }
+        }
+        List<Object> added = new ArrayList<>();
+        for (Object val : source) {
+            if (existing.add(new StructuralKey(val))) {
+                added.add(val);
+            }
+        }
+        if (added.isEmpty()) {
+            return target;
+        }
+        Collection<Object> result = this.copy(target);
+        result.addAll(added);
+        return result;
+    }
+
+    private Map<String, Object> copy(Map<String, Object> map) {
+        if (map instanceof PersistentHashMap) {
+            return ((PersistentHashMap<String, Object>) map).copy();
+        }
+        Map<String, Object> copy = (Map) this.mapUtils.getMapSupplier().getSupplier().apply(map.size());
+        copy.putAll(map);
+        return copy;
+    }
+
+    private Collection<Object> copy(Collection<Object> collection) {
+        if (collection instanceof PersistentVector) {
+            return ((PersistentVector<Object>) collection).copy();
+        }
+        return this.mapUtils.mergeCollectionItems(collection, collection);
+    }
+
+}
@@ -0,0 +1,56 @@
+package org.maputils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import org.maputils.metrics.Operation;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Merges JSON objects into Maps while they are being read from a Jackson {@link JsonParser}, without deserializing the
+ * source first. Kept apart from {@link MapUtils} so that only this class refers to jackson-core, which callers must
+ * provide at runtime to use it.
+ */
+public final class JsonStreamMerge {
+
+    private final MapUtils mapUtils;
+
+    /**
+     * @param mapUtils Provides the suppliers used to materialize values added to the target.
+     */
+    public JsonStreamMerge(MapUtils mapUtils) {
+        this.mapUtils = mapUtils;
+    }
+
+    /**
+     * Merges values from a JSON object into target object while it is being read, without deserializing the source first.
+     * @param target The object which values will be merged into.
+     * @param parser Parser positioned before or at the start of the JSON object which values will be merged from.
+     * @throws IOException if the source cannot be read or is not a JSON object.
+     */
+    public void merge(Map<String, Object> target, JsonParser parser) throws IOException {
+        this.merge(target, parser, null);
+    }
+
+    /**
+     * Merges values from a JSON object into target object while it is being read, without deserializing the source first.
+     * Produces the same result as {@link MapUtils#merge(Map, Map, Map)} given the deserialized source; only values added
+     * to the target and individual items of collections listed in collectionKeys are materialized. Metrics are reported
+     * as a merge.
+     * @param target The object which values will be merged into.
+     * @param parser Parser positioned before or at the start of the JSON object which values will be merged from.
+     * @param collectionKeys Map which specifies the primary identifier for Objects in a Collection.
+     * @throws IOException if the source cannot be read or is not a JSON object.
+     */
+    public void merge(Map<String, Object> target, JsonParser parser, Map<String, String> collectionKeys) throws IOException {
+        if (target != null && parser != null) {
+            MetricsRecorder recorder = this.mapUtils.begin(Operation.MERGE);
+            try {
+                new StreamingMerger(this.mapUtils, collectionKeys).merge(target, parser);
+            } finally {
+                this.mapUtils.end(recorder, null);
+            }
+        }
+    }
+
+}
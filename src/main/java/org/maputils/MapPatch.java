@@ -0,0 +1,130 @@
+package org.maputils;
+
+import java.util.*;
+
+/**
+ * The changes which turn one Map into another, produced by {@link MapUtils#diff(Map, Map, Map)} and applied by
+ * {@link MapUtils#applyPatch(Map, MapPatch)}. Items of keyed collections are identified by their collection key,
+ * so a patch only describes the items which changed rather than the whole collection.
+ * Values are shared with the Map the patch was produced from rather than copied.
+ */
+public final class MapPatch {
+
+    public enum Type {
+        /**
+         * A key was added to a Map.
+         */
+        ADD,
+        /**
+         * A key was removed from a Map, or an item was removed from a keyed collection.
+         */
+        REMOVE,
+        /**
+         * The value of a key was replaced.
+         */
+        REPLACE,
+        /**
+         * An item was added to a collection.
+         */
+        ADD_ITEM,
+        /**
+         * An item was removed from a Set.
+         */
+        REMOVE_ITEM
+    }
+
+    private final List<Change> changes;
+
+    MapPatch(List<Change> changes) {
+        this.changes = Collections.unmodifiableList(changes);
+    }
+
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    public int size() {
+        return this.changes.size();
+    }
+
+    public boolean isEmpty() {
+        return this.changes.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return this.changes.toString();
+    }
+
+    /**
+     * A single change to a Map, located by a path of Map keys and keyed collection items.
+     */
+    public static final class Change {
+
+        private final Type type;
+        /**
+         * Map keys as Strings and keyed collection items as {@link Item}s.
+         */
+        final Object[] segments;
+        private final Object value;
+
+        Change(Type type, Object[] segments, Object value) {
+            this.type = type;
+            this.segments = segments;
+            this.value = value;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * @return Dot-notation path of the changed value, locating keyed collection items by their index in the original Map.
+         * For {@link Type#ADD_ITEM} and {@link Type#REMOVE_ITEM}, the path of the collection.
+         */
+        public String getPath() {
+            StringBuilder sb = new StringBuilder();
+            for (Object segment : this.segments) {
+                if (sb.length() > 0) {
+                    sb.append('.');
+                }
+                sb.append(segment instanceof Item ? ((Item) segment).index : segment);
+            }
+            return sb.toString();
+        }
+
+        /**
+         * @return The new value, or the item added or removed; null for {@link Type#REMOVE}.
+         */
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return this.type + " " + this.getPath() + (this.type != Type.REMOVE ? "=" + this.value : "");
+        }
+
+    }
+
+    /**
+     * An item of a keyed collection, identified by its collection key.
+     */
+    static final class Item {
+
+        final CollectionKey collectionKey;
+        final Object id;
+        /**
+         * Position of the item in the original collection, checked before searching the collection for its id.
+         */
+        final int index;
+
+        Item(CollectionKey collectionKey, Object id, int index) {
+            this.collectionKey = collectionKey;
+            this.id = id;
+            this.index = index;
+        }
+
+    }
+
+}
@@ -0,0 +1,137 @@
+package org.maputils;
+
+/**
+ * A dot-notation path which has been parsed once into its individual segments.
+ * Each segment retains its Map key, along with its List index when the segment is numeric.
+ * Instances are immutable and may be shared between threads and reused across calls to {@link MapUtils}.
+ */
+public final class MapPath {
+
+    /**
+     * Marks a segment which cannot be used as a List index.
+     */
+    public static final int NO_INDEX = -1;
+
+    private static final MapPath EMPTY = new MapPath("", new String[0], new int[0]);
+
+    private final String path;
+    private final String[] keys;
+    private final int[] indexes;
+    /**
+     * The path up to and including each segment, computed when first needed.
+     */
+    private volatile String[] prefixes;
+
+    private MapPath(String path, String[] keys, int[] indexes) {
+        this.path = path;
+        this.keys = keys;
+        this.indexes = indexes;
+    }
+
+    /**
+     * Parses a dot-notation path into a reusable MapPath.
+     * Blank paths produce an empty MapPath which never resolves to a value.
+     * @param path Dot-notation path
+     * @return The compiled path
+     */
+    public static MapPath compile(String path) {
+        if (path == null || path.trim().length() == 0) {
+            return EMPTY;
+        }
+        String[] keys = path.split("\\.");
+        int[] indexes = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            indexes[i] = parseIndex(keys[i]);
+        }
+        return new MapPath(path, keys, indexes);
+    }
+
+    static int parseIndex(String key) {
+        int length = key.length();
+        if (length == 0 || length > 10) {
+            return NO_INDEX;
+        }
+        long index = 0;
+        for (int i = 0; i < length; i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return NO_INDEX;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index > Integer.MAX_VALUE ? NO_INDEX : (int) index;
+    }
+
+    /**
+     * @return The number of segments in this path.
+     */
+    public int size() {
+        return this.keys.length;
+    }
+
+    public boolean isEmpty() {
+        return this.keys.length == 0;
+    }
+
+    /**
+     * @param i Segment position
+     * @return The Map key for the given segment.
+     */
+    public String getKey(int i) {
+        return this.keys[i];
+    }
+
+    /**
+     * @param i Segment position
+     * @return The List index for the given segment, or {@link #NO_INDEX} if the segment is not numeric.
+     */
+    public int getIndex(int i) {
+        return this.indexes[i];
+    }
+
+    /**
+     * @param i Segment position
+     * @return Whether the given segment can be used to access a List.
+     */
+    public boolean isIndex(int i) {
+        return this.indexes[i] != NO_INDEX;
+    }
+
+    /**
+     * @param i Segment position
+     * @return The dot-notation path up to and including the given segment.
+     */
+    String getPrefix(int i) {
+        String[] prefixes = this.prefixes;
+        if (prefixes == null) {
+            // racing threads compute the same values, so whichever array is kept does not matter
+            prefixes = new String[this.keys.length];
+            int end = -1;
+            for (int j = 0; j < prefixes.length; j++) {
+                end += this.keys[j].length() + 1;
+                prefixes[j] = this.path.substring(0, end);
+            }
+            this.prefixes = prefixes;
+        }
+        return prefixes[i];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof MapPath && this.path.equals(((MapPath) o).path);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.path;
+    }
+
+}
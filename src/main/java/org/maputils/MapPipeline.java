@@ -0,0 +1,334 @@
+package org.maputils;
+
+import org.maputils.metrics.StageMetrics;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Applies a fixed sequence of {@link MapUtils} operations to each document of an input, processing documents concurrently.
+ * Each document is passed through every stage by its own task, on a virtual thread when the JVM supports them. At most
+ * {@link Builder#queueCapacity(int)} documents are in flight at once, so reading the input blocks while the consumer
+ * falls behind. Results are handed to the consumer in batches on the thread which called run, in input order unless
+ * ordering is disabled. Instances are immutable apart from their stage counters and may be run repeatedly.
+ */
+@SuppressWarnings("rawtypes,unchecked")
+public final class MapPipeline {
+
+    private final Stage[] stages;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final boolean ordered;
+    private final ExecutorService executor;
+
+    private MapPipeline(Builder builder) {
+        this.stages = builder.stages.toArray(new Stage[0]);
+        this.queueCapacity = builder.queueCapacity;
+        this.batchSize = builder.batchSize;
+        this.ordered = builder.ordered;
+        this.executor = builder.executor;
+    }
+
+    /**
+     * @param mapUtils The instance whose suppliers and caches the stages use.
+     * @return A builder for a pipeline with no stages.
+     */
+    public static Builder builder(MapUtils mapUtils) {
+        return new Builder(mapUtils);
+    }
+
+    /**
+     * Processes every document of an input.
+     * @param input The documents to process.
+     * @param output Receives the processed documents in batches of at most the configured batch size; never invoked concurrently.
+     * @return The number of documents passed to output.
+     * @throws InterruptedException if the calling thread is interrupted while waiting for results.
+     */
+    public long run(Stream<? extends Map<String, Object>> input, Consumer<List<Map<String, Object>>> output) throws InterruptedException {
+        return this.run(input.iterator(), output);
+    }
+
+    /**
+     * Processes every document of an input.
+     * Exceptions thrown by a stage or by the input stop the run and are rethrown; documents in the unfinished batch are not output.
+     * @param input The documents to process, which is only read by one thread at a time.
+     * @param output Receives the processed documents in batches of at most the configured batch size; never invoked concurrently.
+     * @return The number of documents passed to output.
+     * @throws InterruptedException if the calling thread is interrupted while waiting for results.
+     */
+    public long run(Iterator<? extends Map<String, Object>> input, Consumer<List<Map<String, Object>>> output) throws InterruptedException {
+        ExecutorService executor = this.executor != null ? this.executor : newExecutor();
+        // every in-flight document holds a permit, so the queue only needs room for their results and the end of the input
+        BlockingQueue<Result> results = new ArrayBlockingQueue<>(this.queueCapacity + 1);
+        Semaphore permits = new Semaphore(this.queueCapacity);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Future<?> producer = executor.submit(() -> this.produce(input, executor, permits, results, cancelled));
+        try {
+            return this.drain(results, permits, output);
+        } finally {
+            cancelled.set(true);
+            producer.cancel(true);
+            if (this.executor == null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * @return Counters for each stage, in the order the stages are applied.
+     */
+    public List<StageMetrics> getStageMetrics() {
+        List<StageMetrics> metrics = new ArrayList<>(this.stages.length);
+        for (Stage stage : this.stages) {
+            metrics.add(new StageMetrics(stage.name, stage.processed.sum(), stage.dropped.sum(), stage.nanos.sum()));
+        }
+        return metrics;
+    }
+
+    private void produce(Iterator<? extends Map<String, Object>> input, ExecutorService executor, Semaphore permits,
+                         BlockingQueue<Result> results, AtomicBoolean cancelled) {
+        long sequence = 0;
+        try {
+            while (!cancelled.get() && input.hasNext()) {
+                Map<String, Object> document = input.next();
+                permits.acquire();
+                long current = sequence++;
+                executor.execute(() -> results.add(this.process(current, document)));
+            }
+            results.add(new Result(sequence, null, null, true));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | Error e) {
+            results.add(new Result(sequence, null, e, false));
+        }
+    }
+
+    private Result process(long sequence, Map<String, Object> document) {
+        Map<String, Object> current = document;
+        try {
+            for (int i = 0; i < this.stages.length && current != null; i++) {
+                current = this.stages[i].apply(current);
+            }
+            return new Result(sequence, current, null, false);
+        } catch (RuntimeException | Error e) {
+            return new Result(sequence, null, e, false);
+        }
+    }
+
+    private long drain(BlockingQueue<Result> results, Semaphore permits, Consumer<List<Map<String, Object>>> output) throws InterruptedException {
+        Map<Long, Result> pending = this.ordered ? new HashMap<>() : null;
+        List<Map<String, Object>> batch = new ArrayList<>(this.batchSize);
+        long next = 0;
+        long end = -1;
+        long emitted = 0;
+        while (end < 0 || next < end) {
+            Result result = results.take();
+            if (result.end) {
+                end = result.sequence;
+                continue;
+            }
+            if (pending != null) {
+                pending.put(result.sequence, result);
+                result = pending.remove(next);
+            }
+            // without ordering, results are output as they arrive and next only counts them
+            while (result != null) {
+                result.rethrow();
+                permits.release();
+                next++;
+                if (result.document != null) {
+                    batch.add(result.document);
+                    emitted++;
+                    if (batch.size() == this.batchSize) {
+                        output.accept(batch);
+                        batch = new ArrayList<>(this.batchSize);
+                    }
+                }
+                result = pending != null ? pending.remove(next) : null;
+            }
+        }
+        if (!batch.isEmpty()) {
+            output.accept(batch);
+        }
+        return emitted;
+    }
+
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // virtual threads require Java 21; the number of platform threads is still bounded by the queue capacity
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "map-pipeline");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static final class Result {
+
+        private final long sequence;
+        private final Map<String, Object> document;
+        private final Throwable error;
+        private final boolean end;
+
+        private Result(long sequence, Map<String, Object> document, Throwable error, boolean end) {
+            this.sequence = sequence;
+            this.document = document;
+            this.error = error;
+            this.end = end;
+        }
+
+        private void rethrow() {
+            if (this.error instanceof RuntimeException) {
+                throw (RuntimeException) this.error;
+            }
+            if (this.error instanceof Error) {
+                throw (Error) this.error;
+            }
+        }
+
+    }
+
+    private static final class Stage {
+
+        private final String name;
+        private final UnaryOperator<Map<String, Object>> operator;
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        private Stage(String name, UnaryOperator<Map<String, Object>> operator) {
+            this.name = name;
+            this.operator = operator;
+        }
+
+        private Map<String, Object> apply(Map<String, Object> document) {
+            long start = System.nanoTime();
+            Map<String, Object> result = this.operator.apply(document);
+            this.nanos.add(System.nanoTime() - start);
+            this.processed.increment();
+            if (result == null) {
+                this.dropped.increment();
+            }
+            return result;
+        }
+
+    }
+
+    public static final class Builder {
+
+        private final MapUtils mapUtils;
+        private final List<Stage> stages = new ArrayList<>();
+        private int queueCapacity = 1024;
+        private int batchSize = 100;
+        private boolean ordered = true;
+        private ExecutorService executor;
+
+        private Builder(MapUtils mapUtils) {
+            this.mapUtils = mapUtils;
+        }
+
+        /**
+         * Adds a stage which replaces each document with the result of an operator; returning null removes the document.
+         * @param name Name reported in the stage metrics.
+         * @param operator Applied to documents concurrently.
+         */
+        public Builder stage(String name, UnaryOperator<Map<String, Object>> operator) {
+            this.stages.add(new Stage(name, operator));
+            return this;
+        }
+
+        /**
+         * Adds a stage which replaces each document with the values read from it, as {@link MapUtils#readAll(Map, PathSet)}.
+         * @param paths Dot-notation paths.
+         */
+        public Builder readAll(Collection<String> paths) {
+            PathSet compiled = PathSet.compile(paths);
+            return this.stage("readAll", document -> this.mapUtils.readAll(document, compiled));
+        }
+
+        /**
+         * Adds a stage which removes each document whose value at a path does not match a predicate.
+         * @param path Dot-notation path.
+         * @param predicate Tested with the value at path, or null if it does not resolve.
+         */
+        public Builder filter(String path, Predicate<Object> predicate) {
+            MapPath compiled = this.mapUtils.compilePath(path);
+            return this.stage("filter", document -> predicate.test(this.mapUtils.resolve(document, compiled)) ? document : null);
+        }
+
+        /**
+         * Adds a stage which replaces each document with a new Map assigned from it, as {@link MapUtils#assign(Map, Map, AssignPlan)}.
+         * @param keys The paths to assign. Left-hand side contains paths to assign to the new Map, right-hand side contains paths to read from the document.
+         * @param assignPaths Toggles whether keys can contain nested paths.
+         */
+        public Builder assign(Map<String, String> keys, boolean assignPaths) {
+            AssignPlan plan = AssignPlan.compile(keys, assignPaths);
+            return this.stage("assign", document -> {
+                Map target = this.mapUtils.getMapSupplier().getSupplier().apply(plan.keys.length);
+                this.mapUtils.assign(target, document, plan);
+                return (Map<String, Object>) target;
+            });
+        }
+
+        /**
+         * Adds a stage which merges a source into each document, as {@link MapUtils#merge(Map, Map, Map)}.
+         * Values the documents did not have are shared with the source rather than copied, so later stages must not modify them.
+         * @param source The object which values will be merged from.
+         * @param collectionKeys Map which specifies the primary identifier for Objects in a Collection.
+         */
+        public Builder merge(Map<String, Object> source, Map<String, String> collectionKeys) {
+            return this.stage("merge", document -> {
+                this.mapUtils.merge(document, source, collectionKeys);
+                return document;
+            });
+        }
+
+        /**
+         * @param queueCapacity The maximum number of documents being processed or awaiting output at once.
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = Math.max(1, queueCapacity);
+            return this;
+        }
+
+        /**
+         * @param batchSize The maximum number of documents passed to the output at once.
+         */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = Math.max(1, batchSize);
+            return this;
+        }
+
+        /**
+         * @param ordered Whether documents are output in input order; otherwise they are output as soon as they are processed.
+         */
+        public Builder ordered(boolean ordered) {
+            this.ordered = ordered;
+            return this;
+        }
+
+        /**
+         * @param executor Runs the tasks of each run and is left running afterwards; it must be able to run at least two tasks at once.
+         *                 A new executor is used for each run when not set.
+         */
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public MapPipeline build() {
+            return new MapPipeline(this);
+        }
+
+    }
+
+}
@@ -1,10 +1,17 @@
 package org.maputils;
 
+import org.maputils.metrics.MetricsListener;
+import org.maputils.metrics.Operation;
+import org.maputils.metrics.OperationMetrics;
 import org.maputils.suppliers.ListSupplier;
 import org.maputils.suppliers.MapSupplier;
 import org.maputils.suppliers.SetSupplier;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Provides helper methods to interact with Maps inspired by lodash
@@ -24,6 +31,29 @@ public class MapUtils {
      * Determines what Set implementation will be used when adding Set fields.
      */
     private SetSupplier setSupplier = SetSupplier.HASH_SET;
+    /**
+     * Determines how many compiled paths are retained for reuse by the String-based methods; 0 disables caching.
+     */
+    private int pathCacheSize = 1024;
+    private final Map<String, MapPath> pathCache = new ConcurrentHashMap<>();
+    private final Map<String, CollectionKey> collectionKeyCache = new ConcurrentHashMap<>();
+    /**
+     * Determines what pool runs parallel merges; the common pool is used when not set.
+     */
+    private ForkJoinPool forkJoinPool;
+    /**
+     * Determines how many nested Maps or keyed collection items a node needs before a parallel merge splits them across threads.
+     */
+    private int parallelThreshold = 1000;
+    /**
+     * Determines what listener receives metrics for each read, merge, assign, addNode and cloneDeep call; metrics are not collected when not set.
+     */
+    private MetricsListener metricsListener;
+    private final ThreadLocal<MetricsRecorder> recorders = ThreadLocal.withInitial(MetricsRecorder::new);
+    /**
+     * Determines what size new nodes are created with; see {@link #setAdaptiveSizing(boolean)} and {@link #setSizeHint(String, int)}.
+     */
+    private final SizeHints sizeHints = new SizeHints();
 
     public MapSupplier getMapSupplier() {
         return mapSupplier;
@@ -49,6 +79,109 @@ public class MapUtils {
         this.setSupplier = setSupplier;
     }
 
+    public int getPathCacheSize() {
+        return pathCacheSize;
+    }
+
+    public void setPathCacheSize(int pathCacheSize) {
+        this.pathCacheSize = pathCacheSize;
+        this.pathCache.clear();
+        this.collectionKeyCache.clear();
+    }
+
+    public ForkJoinPool getForkJoinPool() {
+        return forkJoinPool != null ? forkJoinPool : ForkJoinPool.commonPool();
+    }
+
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public MetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    public void setMetricsListener(MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    public boolean isAdaptiveSizing() {
+        return sizeHints.isLearning();
+    }
+
+    /**
+     * Toggles whether the sizes which nodes at each path reach are learned, so that later nodes at the same path are
+     * created with room for as many entries. Map nodes added by addNode and assign are identified by their dot-notation
+     * path, and collections created by merge by their key, as in collectionKeys.
+     * @param adaptiveSizing Whether sizes are learned; disabling it discards the sizes learned so far.
+     */
+    public void setAdaptiveSizing(boolean adaptiveSizing) {
+        this.sizeHints.setLearning(adaptiveSizing);
+    }
+
+    /**
+     * @param path Dot-notation path of a Map node, or key of a collection.
+     * @return The size nodes at the given path are created with, or 0 if it is not known.
+     */
+    public int getSizeHint(String path) {
+        return this.sizeHints.get(path);
+    }
+
+    /**
+     * Sets the size nodes at a path are created with, taking precedence over any learned size.
+     * @param path Dot-notation path of a Map node, or key of a collection.
+     * @param size Expected number of entries; 0 removes the hint.
+     */
+    public void setSizeHint(String path, int size) {
+        this.sizeHints.set(path, size);
+    }
+
+    /**
+     * Starts collecting metrics for an operation on the current thread.
+     * @return The recorder to pass to {@link #end}, or null if no listener is set or an outer operation is already being recorded.
+     */
+    MetricsRecorder begin(Operation operation) {
+        if (this.metricsListener == null) {
+            return null;
+        }
+        MetricsRecorder recorder = this.recorders.get();
+        if (recorder.isActive()) {
+            // nested calls are counted as part of the outermost operation
+            return null;
+        }
+        recorder.start(operation);
+        return recorder;
+    }
+
+    void end(MetricsRecorder recorder, Object path) {
+        if (recorder != null) {
+            MetricsListener listener = this.metricsListener;
+            OperationMetrics metrics = recorder.finish(path != null ? path.toString() : null);
+            if (listener != null) {
+                listener.onOperation(metrics);
+            }
+        }
+    }
+
+    /**
+     * @return The recorder of the operation running on the current thread, or null if metrics are not being collected.
+     */
+    MetricsRecorder recorder() {
+        if (this.metricsListener == null) {
+            return null;
+        }
+        MetricsRecorder recorder = this.recorders.get();
+        return recorder.isActive() ? recorder : null;
+    }
+
     /**
      * Extract data from a Map given a dot-notation path
      * @param map The target Map
@@ -59,28 +192,167 @@ public class MapUtils {
         if (map == null || path == null || path.trim().length() == 0) {
             return Optional.empty();
         }
-        String[] nodes = path.split("\\.");
-        Object current = map.get(nodes[0]);
+        MetricsRecorder recorder = this.begin(Operation.READ);
+        try {
+            return this.readPath(map, this.compilePath(path));
+        } finally {
+            this.end(recorder, path);
+        }
+    }
+
+    /**
+     * Extract data from a Map given a compiled path
+     * @param map The target Map
+     * @param path Compiled path
+     * @return Optional value extracted from the target Map
+     */
+    public <T> Optional<T> readPath(Map<String, Object> map, MapPath path) {
+        MetricsRecorder recorder = this.begin(Operation.READ);
+        try {
+            return (Optional<T>) Optional.ofNullable(this.resolve(map, path));
+        } finally {
+            this.end(recorder, path);
+        }
+    }
+
+    /**
+     * Resolves a compiled path without wrapping the result.
+     * @return The value at the given path, or null if it does not resolve.
+     */
+    Object resolve(Map<String, Object> map, MapPath path) {
+        if (map == null || path == null || path.isEmpty()) {
+            return null;
+        }
+        MetricsRecorder recorder = this.recorder();
+        if (recorder != null) {
+            recorder.nodesVisited += path.size();
+        }
+        Object current = map.get(path.getKey(0));
         if (current == null) {
-            return Optional.empty();
+            return null;
         }
-        for (int i = 1; i < nodes.length; i++) {
-            String node = nodes[i];
+        for (int i = 1; i < path.size(); i++) {
             // nested map
             if (current instanceof Map) {
-                current = ((Map<String, Object>) current).get(node);
+                current = ((Map<String, Object>) current).get(path.getKey(i));
             } else if (current instanceof List) {
                 // nested collection
-                if (!node.matches("^\\d+$")) {
+                if (!path.isIndex(i)) {
                     // only allow numeric indexes to be accessible on Lists
-                    return Optional.empty();
+                    return null;
+                }
+                current = ((List<Object>) current).get(path.getIndex(i));
+            } else if (current instanceof Collection) {
+                return null;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Extract data from a Map given multiple dot-notation paths, walking paths which share a prefix only once
+     * @param map The target Map
+     * @param paths Dot-notation paths
+     * @return Values extracted from the target Map keyed by path; paths which do not resolve to a value are omitted
+     */
+    public Map<String, Object> readAll(Map<String, Object> map, Collection<String> paths) {
+        return this.readAll(map, PathSet.compile(paths));
+    }
+
+    /**
+     * Extract data from a Map given a compiled set of paths, walking paths which share a prefix only once
+     * @param map The target Map
+     * @param paths Compiled paths
+     * @return Values extracted from the target Map keyed by path; paths which do not resolve to a value are omitted
+     */
+    public Map<String, Object> readAll(Map<String, Object> map, PathSet paths) {
+        if (map == null || paths == null || paths.size() == 0) {
+            return new LinkedHashMap<>();
+        }
+        Map<String, Object> result = new LinkedHashMap<>(paths.size() * 4 / 3 + 1);
+        for (PathSet.Node node : paths.getRoot().children) {
+            this.readNode(map.get(node.key), node, result);
+        }
+        return result;
+    }
+
+    private void readNode(Object current, PathSet.Node node, Map<String, Object> result) {
+        if (current == null) {
+            return;
+        }
+        for (String path : node.paths) {
+            result.put(path, current);
+        }
+        for (PathSet.Node child : node.children) {
+            // mirrors the traversal of readPath for each child segment
+            Object next = current;
+            if (current instanceof Map) {
+                next = ((Map<String, Object>) current).get(child.key);
+            } else if (current instanceof List) {
+                if (child.index == MapPath.NO_INDEX) {
+                    continue;
                 }
-                current = ((List<Object>) current).get(Integer.parseInt(node));
+                next = ((List<Object>) current).get(child.index);
             } else if (current instanceof Collection) {
-                return Optional.empty();
+                continue;
+            }
+            this.readNode(next, child, result);
+        }
+    }
+
+    /**
+     * Extract every value matching a dot-notation path which may contain wildcard and slice segments
+     * @param map The target Map
+     * @param pattern Dot-notation path; {@code *} matches every value of a node and {@code [start:end]} a range of items
+     * @return Lazy Stream of the values extracted from the target Map, in iteration order
+     */
+    public <T> Stream<T> readStream(Map<String, Object> map, String pattern) {
+        return this.readPattern(map, PathPattern.compile(pattern));
+    }
+
+    /**
+     * Extract every value matching a compiled pattern.
+     * Maps, Lists and Sets are walked only as far as the Stream is consumed, so short-circuiting operations such as
+     * findFirst or limit leave the rest of a large collection untouched. Null values are omitted.
+     * @param map The target Map
+     * @param pattern Compiled pattern
+     * @return Lazy Stream of the values extracted from the target Map, in iteration order
+     */
+    public <T> Stream<T> readPattern(Map<String, Object> map, PathPattern pattern) {
+        if (map == null || pattern == null || pattern.isEmpty()) {
+            return Stream.empty();
+        }
+        Iterator<T> iterator = (Iterator<T>) new PathIterator(map, pattern);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Compiles a dot-notation path, reusing a previously compiled instance when one is cached.
+     * @param path Dot-notation path
+     * @return The compiled path
+     */
+    public MapPath compilePath(String path) {
+        if (this.pathCacheSize <= 0 || path == null) {
+            MetricsRecorder recorder = this.recorder();
+            if (recorder != null) {
+                recorder.pathsCompiled++;
             }
+            return MapPath.compile(path);
         }
-        return (Optional<T>) Optional.of(current);
+        MapPath compiled = this.pathCache.get(path);
+        if (compiled == null) {
+            compiled = MapPath.compile(path);
+            MetricsRecorder recorder = this.recorder();
+            if (recorder != null) {
+                recorder.pathsCompiled++;
+            }
+            if (this.pathCache.size() >= this.pathCacheSize) {
+                // bound memory use without the bookkeeping of an LRU; hot paths are recompiled on their next use
+                this.pathCache.clear();
+            }
+            this.pathCache.put(path, compiled);
+        }
+        return compiled;
     }
 
     /**
@@ -102,6 +374,53 @@ public class MapUtils {
      */
     public void merge(Map<String, Object> target, Map<String, Object> source, Map<String, String> collectionKeys) {
         if (target != null && source != null) {
+            MetricsRecorder recorder = this.begin(Operation.MERGE);
+            try {
+                this.mergeInternal(target, source, collectionKeys);
+            } finally {
+                this.end(recorder, null);
+            }
+        }
+    }
+
+    /**
+     * Merges values from each source object into target object in turn.
+     * @param target The object which values will be merged into.
+     * @param sources The objects which values will be merged from, in order.
+     */
+    public void mergeAll(Map<String, Object> target, Iterable<? extends Map<String, Object>> sources) {
+        this.mergeAll(target, sources, null);
+    }
+
+    /**
+     * Merges values from each source object into target object in turn.
+     * Produces the same result as calling {@link #merge(Map, Map, Map)} for each source, but each collection listed
+     * in collectionKeys is indexed by its primary identifier once and only rebuilt after the last source, rather than
+     * once per source.
+     * @param target The object which values will be merged into.
+     * @param sources The objects which values will be merged from, in order.
+     * @param collectionKeys Map which specifies the primary identifier for Objects in a Collection.
+     */
+    public void mergeAll(Map<String, Object> target, Iterable<? extends Map<String, Object>> sources, Map<String, String> collectionKeys) {
+        if (target != null && sources != null) {
+            MetricsRecorder recorder = this.begin(Operation.MERGE);
+            try {
+                new BulkMerger(this, collectionKeys).merge(target, sources);
+            } finally {
+                this.end(recorder, null);
+            }
+        }
+    }
+
+    /**
+     * Performs {@link #merge(Map, Map, Map)} as part of another operation, without reporting metrics separately.
+     */
+    void mergeInternal(Map<String, Object> target, Map<String, Object> source, Map<String, String> collectionKeys) {
+        if (target != null && source != null) {
+            MetricsRecorder recorder = this.recorder();
+            if (recorder != null) {
+                recorder.nodesVisited += source.size();
+            }
             for (Map.Entry<String, Object> entry : source.entrySet()) {
                 String key = entry.getKey();
                 Object value = entry.getValue();
@@ -110,7 +429,7 @@ public class MapUtils {
                     target.put(key, value);
                 } else if (value instanceof Map) {
                     if (targetValue instanceof Map) {
-                        this.merge((Map<String, Object>) targetValue, (Map<String, Object>) value, collectionKeys);
+                        this.mergeInternal((Map<String, Object>) targetValue, (Map<String, Object>) value, collectionKeys);
                     } else {
                         target.put(key, value);
                     }
@@ -129,29 +448,211 @@ public class MapUtils {
         }
     }
 
-    private boolean isCollection(Object target) {
+    /**
+     * Merges values from source object into target object using the configured ForkJoinPool.
+     * Produces the same result as {@link #merge(Map, Map)}; nodes below the parallel threshold are merged sequentially.
+     * @param target The object which values will be merged into.
+     * @param source The object which values will be merged from.
+     */
+    public void mergeParallel(Map<String, Object> target, Map<String, Object> source) {
+        this.mergeParallel(target, source, null);
+    }
+
+    /**
+     * Merges values from source object into target object using the configured ForkJoinPool.
+     * Produces the same result as {@link #merge(Map, Map, Map)}; nodes below the parallel threshold are merged sequentially.
+     * Subtrees must not be shared between multiple parents, as independent subtrees are merged concurrently.
+     * @param target The object which values will be merged into.
+     * @param source The object which values will be merged from.
+     * @param collectionKeys Map which specifies the primary identifier for Objects in a Collection.
+     */
+    public void mergeParallel(Map<String, Object> target, Map<String, Object> source, Map<String, String> collectionKeys) {
+        if (target != null && source != null) {
+            new ParallelMerger(this, collectionKeys).merge(target, source);
+        }
+    }
+
+    /**
+     * Merges values from source object into target object while other threads may be merging into the same target.
+     * @param target The object which values will be merged into.
+     * @param source The object which values will be merged from.
+     */
+    public void mergeConcurrent(Map<String, Object> target, Map<String, Object> source) {
+        this.mergeConcurrent(target, source, null);
+    }
+
+    /**
+     * Merges values from source object into target object while other threads may be merging into the same target.
+     * Missing keys are added atomically on ConcurrentMap nodes, and writes to an existing key (including collection
+     * merges) are serialized per node and key, so concurrent merges do not lose updates. Nodes which are not
+     * ConcurrentMaps are locked for the duration of their merge; use {@link MapSupplier#CONCURRENT_HASH_MAP} so that
+     * readers and writers of other keys are not blocked. Null values are skipped, as ConcurrentMaps do not permit them.
+     * @param target The object which values will be merged into.
+     * @param source The object which values will be merged from.
+     * @param collectionKeys Map which specifies the primary identifier for Objects in a Collection.
+     */
+    public void mergeConcurrent(Map<String, Object> target, Map<String, Object> source, Map<String, String> collectionKeys) {
+        if (target != null && source != null) {
+            new ConcurrentMerger(this, collectionKeys).merge(target, source);
+        }
+    }
+
+    /**
+     * Merges values from source object into a copy of target object, leaving both unchanged.
+     * @param target The object which values will be merged into.
+     * @param source The object which values will be merged from.
+     * @return The merged object, sharing all unchanged subtrees with target; target itself if nothing changed.
+     */
+    public Map<String, Object> mergeImmutable(Map<String, Object> target, Map<String, Object> source) {
+        return this.mergeImmutable(target, source, null);
+    }
+
+    /**
+     * Merges values from source object into a copy of target object, leaving both unchanged.
+     * Produces the same result as {@link #merge(Map, Map, Map)}, but only nodes along changed paths are copied.
+     * Use {@link MapSupplier#PERSISTENT_HASH_MAP} and {@link ListSupplier#PERSISTENT_VECTOR} so that copying a node
+     * only costs the entries which changed.
+     * @param target The object which values will be merged into.
+     * @param source The object which values will be merged from.
+     * @param collectionKeys Map which specifies the primary identifier for Objects in a Collection.
+     * @return The merged object, sharing all unchanged subtrees with target; target itself if nothing changed.
+     */
+    public Map<String, Object> mergeImmutable(Map<String, Object> target, Map<String, Object> source, Map<String, String> collectionKeys) {
+        if (target == null || source == null) {
+            return target;
+        }
+        return new ImmutableMerger(this, collectionKeys).merge(target, source);
+    }
+
+    /**
+     * Computes the changes which turn one Map into another.
+     * @param a The original object.
+     * @param b The updated object.
+     * @return The changes which turn a into b.
+     */
+    public MapPatch diff(Map<String, Object> a, Map<String, Object> b) {
+        return this.diff(a, b, null);
+    }
+
+    /**
+     * Computes the changes which turn one Map into another.
+     * Items of Lists listed in collectionKeys are matched by their identifier, so that only the items which were
+     * added, removed or changed are included; other Lists which differ are replaced as a whole.
+     * @param a The original object.
+     * @param b The updated object.
+     * @param collectionKeys Map which specifies the primary identifier for Objects in a Collection.
+     * @return The changes which turn a into b.
+     */
+    public MapPatch diff(Map<String, Object> a, Map<String, Object> b, Map<String, String> collectionKeys) {
+        // a null Map is treated as empty
+        return new Patcher(this, collectionKeys).diff(
+                a != null ? a : Collections.emptyMap(),
+                b != null ? b : Collections.emptyMap()
+        );
+    }
+
+    /**
+     * Applies changes produced by {@link #diff(Map, Map, Map)} to a Map, in time proportional to the number of changes.
+     * Keyed collection items are located by their original position and identifier, falling back to a search by
+     * identifier if the collection has changed since. Changes to nodes which no longer exist in the target are skipped.
+     * @param target The object which changes will be applied to.
+     * @param patch The changes to apply.
+     */
+    public void applyPatch(Map<String, Object> target, MapPatch patch) {
+        if (target != null && patch != null) {
+            new Patcher(this, null).apply(target, patch);
+        }
+    }
+
+    /**
+     * Copies a Map along with every Map, List and Set nested within it.
+     * @param map The object to copy.
+     * @return The copy, or null if map is null.
+     */
+    public Map<String, Object> cloneDeep(Map<String, Object> map) {
+        return this.cloneDeep(map, false);
+    }
+
+    /**
+     * Copies a Map along with every Map, List and Set nested within it.
+     * Copies are created using the configured suppliers, sized to the number of entries they are copied with, so this
+     * also converts a tree between supplier types. Other values, such as Strings and numbers, are shared with the source.
+     * Nodes are copied iteratively rather than recursively, so trees of any depth can be copied. Null values are omitted
+     * from ConcurrentMaps, as they are not permitted.
+     * @param map The object to copy.
+     * @param preserveIdentity Whether a node referenced from several places is copied once, with every reference to it
+     *                         referring to the same copy; this also permits cycles. Otherwise the source must be a tree.
+     * @return The copy, or null if map is null.
+     */
+    public Map<String, Object> cloneDeep(Map<String, Object> map, boolean preserveIdentity) {
+        if (map == null) {
+            return null;
+        }
+        MetricsRecorder recorder = this.begin(Operation.CLONE);
+        try {
+            return (Map<String, Object>) new Cloner(this, preserveIdentity, this.recorder()).copy(map);
+        } finally {
+            this.end(recorder, null);
+        }
+    }
+
+    /**
+     * Copies a Map along with every Map, List and Set nested within it using the configured ForkJoinPool.
+     * Produces the same result as {@link #cloneDeep(Map)}; the entries of nodes with at least the parallel threshold of
+     * them are copied concurrently, and smaller nodes sequentially. Metrics are not reported, as the copying runs on
+     * other threads.
+     * @param map The object to copy, which must be a tree.
+     * @return The copy, or null if map is null.
+     */
+    public Map<String, Object> cloneDeepParallel(Map<String, Object> map) {
+        if (map == null) {
+            return null;
+        }
+        return (Map<String, Object>) new ParallelCloner(this).copy(map);
+    }
+
+    /**
+     * @param source A Map, List or Set.
+     * @return An empty node of the same kind created using the configured supplier, sized to hold the entries of source.
+     */
+    Object createCopy(Object source) {
+        if (source instanceof Map) {
+            return this.mapSupplier.getSupplier().apply(((Map) source).size());
+        }
+        if (source instanceof Set) {
+            return this.setSupplier.getSupplier().apply(((Set) source).size());
+        }
+        return this.listSupplier.getSupplier().apply(((List) source).size());
+    }
+
+    boolean isCollection(Object target) {
         return target instanceof List || target instanceof Set;
     }
 
-    private Collection<Object> mergeCollection(Collection<Object> target, Collection<Object> source, Map<String, String> collectionKeys, String key) {
+    Collection<Object> mergeCollection(Collection<Object> target, Collection<Object> source, Map<String, String> collectionKeys, String key) {
         Object listValue = source.size() > 0 ? source.iterator().next() : null;
         Object targetValue = target.size() > 0 ? target.iterator().next() : null;
+        MetricsRecorder recorder = this.recorder();
+        if (recorder != null) {
+            recorder.collectionsMerged++;
+            recorder.collectionItemsMerged += target.size() + source.size();
+        }
         if (listValue != null) {
             if (listValue instanceof Map && targetValue instanceof Map) {
                 int targetSize = target.size();
                 if (collectionKeys != null && collectionKeys.containsKey(key)) {
                     // we know how to account for merges in this instance; merge each Map
-                    Map<String, Map> targetValues = new LinkedHashMap<>(targetSize);
-                    String collectionKey = collectionKeys.get(key);
+                    Map<Object, Map> targetValues = new LinkedHashMap<>(targetSize);
+                    CollectionKey collectionKey = this.compileCollectionKey(collectionKeys.get(key));
                     for (Object val : target) {
-                        String currentKey = this.getCollectionKey((Map<String, Object>) val, collectionKey);
+                        Object currentKey = this.getCollectionKey((Map<String, Object>) val, collectionKey);
                         targetValues.put(currentKey, (Map) val);
                     }
                     for (Object val : source) {
-                        String currentKey = this.getCollectionKey((Map<String, Object>) val, collectionKey);
+                        Object currentKey = this.getCollectionKey((Map<String, Object>) val, collectionKey);
                         // if an object with the same identifier exists already, merge the two values
                         if (targetValues.containsKey(currentKey)) {
-                            this.merge(
+                            this.mergeInternal(
                                     (Map<String, Object>) targetValues.get(currentKey),
                                     (Map<String, Object>) val,
                                     collectionKeys
@@ -161,54 +662,90 @@ public class MapUtils {
                             targetValues.put(currentKey, (Map<String, Object>) val);
                         }
                     }
-                    return this.mergeCollectionItems(target, targetValues.values());
+                    return this.mergeCollectionItems(target, targetValues.values(), key);
                 } else {
-                    return this.mergeUniqueCollectionItems(target, source);
+                    return this.mergeUniqueCollectionItems(target, source, key);
                 }
             } else {
-                return this.mergeUniqueCollectionItems(target, source);
+                return this.mergeUniqueCollectionItems(target, source, key);
             }
         }
         return target;
     }
 
-    private Collection<Object> mergeUniqueCollectionItems(Collection<Object> target, Collection<Object> source) {
+    Collection<Object> mergeUniqueCollectionItems(Collection<Object> target, Collection<Object> source) {
+        return this.mergeUniqueCollectionItems(target, source, null);
+    }
+
+    /**
+     * @param key Key of the collection within its parent, used to look up its size hint; may be null.
+     */
+    Collection<Object> mergeUniqueCollectionItems(Collection<Object> target, Collection<Object> source, String key) {
         // we don't know how to account for merges; combine all values
         int targetSize = target.size();
         int sourceSize = source.size();
-        Map<Integer, Object> uniqueValues = new LinkedHashMap<>(targetSize + sourceSize);
+        // items are compared by equality; later duplicates replace earlier ones while keeping their position
+        Map<StructuralKey, Object> uniqueValues = new LinkedHashMap<>((targetSize + sourceSize) * 4 / 3 + 1);
         for (Object val : target) {
-            uniqueValues.put(val.hashCode(), val);
+            uniqueValues.put(new StructuralKey(val), val);
         }
         for (Object val : source) {
-            uniqueValues.put(val.hashCode(), val);
+            uniqueValues.put(new StructuralKey(val), val);
         }
-        return this.mergeCollectionItems(target, uniqueValues.values());
+        return this.mergeCollectionItems(target, uniqueValues.values(), key);
     }
 
-    private Collection<Object> mergeCollectionItems(Collection<Object> target, Collection<?> values) {
+    Collection<Object> mergeCollectionItems(Collection<Object> target, Collection<?> values) {
+        return this.mergeCollectionItems(target, values, null);
+    }
+
+    /**
+     * @param key Key of the collection within its parent, used to look up its size hint; may be null.
+     */
+    Collection<Object> mergeCollectionItems(Collection<Object> target, Collection<?> values, String key) {
+        SizeHints.Hint hint = this.sizeHint(key);
+        int size = hint != null ? hint.size(values.size()) : values.size();
         Collection<Object> collection;
         if (target instanceof Set) {
-            collection = this.setSupplier.getSupplier().apply(values.size());
+            collection = this.setSupplier.getSupplier().apply(size);
         } else {
-            collection = this.listSupplier.getSupplier().apply(values.size());
+            collection = this.listSupplier.getSupplier().apply(size);
+        }
+        if (hint != null) {
+            hint.created(collection);
+        }
+        MetricsRecorder recorder = this.recorder();
+        if (recorder != null) {
+            recorder.nodesCreated++;
         }
         collection.addAll(values);
         return collection;
     }
 
-    private String getCollectionKey(Map<String, Object> map, String collectionKey) {
-        if (collectionKey.contains(",")) {
-            // support composite keys
-            StringBuilder sb = new StringBuilder();
-            String[] parts = collectionKey.split(",");
-            for (String part : parts) {
-                Optional<Object> result = this.read(map, part);
-                result.ifPresent(sb::append);
+    /**
+     * Compiles a primary identifier from collectionKeys, reusing a previously compiled instance when one is cached.
+     */
+    CollectionKey compileCollectionKey(String collectionKey) {
+        if (this.pathCacheSize <= 0) {
+            return CollectionKey.compile(this, collectionKey);
+        }
+        CollectionKey compiled = this.collectionKeyCache.get(collectionKey);
+        if (compiled == null) {
+            compiled = CollectionKey.compile(this, collectionKey);
+            if (this.collectionKeyCache.size() >= this.pathCacheSize) {
+                this.collectionKeyCache.clear();
             }
-            return sb.toString();
+            this.collectionKeyCache.put(collectionKey, compiled);
+        }
+        return compiled;
+    }
+
+    Object getCollectionKey(Map<String, Object> map, CollectionKey collectionKey) {
+        MetricsRecorder recorder = this.recorder();
+        if (recorder != null) {
+            recorder.collectionKeyLookups++;
         }
-        return this.read(map, collectionKey).map(Object::toString).orElse(null);
+        return collectionKey.extract(map);
     }
 
     /**
@@ -221,27 +758,118 @@ public class MapUtils {
      */
     public void assign(Map target, Map source, Map<String, String> keys, boolean assignPaths) {
         if (target != null && source != null && keys != null) {
-            for (Map.Entry<String, String> entry : keys.entrySet()) {
-                Object value = this.read(source, entry.getValue()).orElse(null);
-                if (value != null) {
+            MetricsRecorder recorder = this.begin(Operation.ASSIGN);
+            try {
+                for (Map.Entry<String, String> entry : keys.entrySet()) {
                     if (assignPaths && entry.getKey().contains(".")) {
-                        String[] parts = entry.getKey().split("\\.");
-                        Map<String, Object> currentTarget = target;
-                        for (int i = 0; i < parts.length - 1; i++) {
-                            String part = parts[i];
-                            currentTarget = currentTarget.containsKey(part) ?
-                                    (Map) currentTarget.get(part) :
-                                    this.addNode(currentTarget, part);
-                        }
-                        currentTarget.put(parts[parts.length - 1], value);
+                        this.assignPath(target, source, this.compilePath(entry.getKey()), this.compilePath(entry.getValue()));
                     } else {
-                        target.put(entry.getKey(), value);
+                        String path = entry.getValue();
+                        Object value = path != null && path.trim().length() > 0 ? this.resolve(source, this.compilePath(path)) : null;
+                        if (value != null) {
+                            target.put(entry.getKey(), value);
+                        }
                     }
                 }
+            } finally {
+                this.end(recorder, null);
             }
         }
     }
 
+    /**
+     * Assigns a single value to a target Map from a source Map using compiled paths.
+     * Intermediate nodes of the target path are added when missing.
+     * @param target The target Map the value is being assigned to.
+     * @param source The source Map the value is being assigned from.
+     * @param targetPath The path to assign to target.
+     * @param sourcePath The path to read from source.
+     */
+    public void assignPath(Map target, Map source, MapPath targetPath, MapPath sourcePath) {
+        if (target != null && source != null && targetPath != null && !targetPath.isEmpty()) {
+            MetricsRecorder recorder = this.begin(Operation.ASSIGN);
+            try {
+                Object value = this.resolve(source, sourcePath);
+                if (value != null) {
+                    Map<String, Object> currentTarget = target;
+                    int last = targetPath.size() - 1;
+                    for (int i = 0; i < last; i++) {
+                        currentTarget = this.getOrAddNode(currentTarget, targetPath.getKey(i), this.hintPath(targetPath, i));
+                    }
+                    currentTarget.put(targetPath.getKey(last), value);
+                }
+            } finally {
+                this.end(recorder, targetPath);
+            }
+        }
+    }
+
+    /**
+     * Assigns values to a target Map from a source Map using a compiled plan.
+     * Produces the same result as {@link #assign(Map, Map, Map, boolean)} with the keys the plan was compiled from.
+     * @param target The target Map values are being assigned to.
+     * @param source The source Map values are being assigned from.
+     * @param plan The compiled paths to assign.
+     */
+    public void assign(Map target, Map source, AssignPlan plan) {
+        if (target != null && source != null && plan != null) {
+            MetricsRecorder recorder = this.begin(Operation.ASSIGN);
+            try {
+                Map[] nodes = plan.nodeKeys.length > 0 ? new Map[plan.nodeKeys.length] : null;
+                for (int i = 0; i < plan.keys.length; i++) {
+                    Object value = this.resolve(source, plan.sourcePaths[i]);
+                    if (value != null) {
+                        this.resolveNode(target, plan, nodes, plan.parents[i]).put(plan.keys[i], value);
+                        if (plan.replacesNode[i]) {
+                            Arrays.fill(nodes, null);
+                        }
+                    }
+                }
+            } finally {
+                this.end(recorder, null);
+            }
+        }
+    }
+
+    private Map resolveNode(Map target, AssignPlan plan, Map[] nodes, int node) {
+        if (node < 0) {
+            return target;
+        }
+        Map current = nodes[node];
+        if (current == null) {
+            current = this.getOrAddNode(this.resolveNode(target, plan, nodes, plan.nodeParents[node]), plan.nodeKeys[node], plan.nodePaths[node]);
+            nodes[node] = current;
+        }
+        return current;
+    }
+
+    /**
+     * Creates a read-only view of a source Map which resolves each key's path when it is first accessed, and then keeps
+     * the result.
+     * Equals the Map {@link #assign(Map, Map, Map, boolean)} builds in an empty target with nested paths, as long as no
+     * target path is a prefix of another, without copying anything up front. Nested target paths appear as nested
+     * views, and values are the source's own objects.
+     * @param source The source Map values are read from.
+     * @param keys The paths to project. Left-hand side contains paths in the view, right-hand side contains paths to read from source.
+     * @return The view of source.
+     */
+    public Map<String, Object> project(Map<String, Object> source, Map<String, String> keys) {
+        return this.project(source, Projection.compile(keys));
+    }
+
+    /**
+     * Creates a read-only view of a source Map using a compiled projection, in constant time.
+     * @param source The source Map values are read from.
+     * @param projection The compiled paths to project.
+     * @return The view of source.
+     */
+    public Map<String, Object> project(Map<String, Object> source, Projection projection) {
+        if (source == null || projection == null) {
+            return Collections.emptyMap();
+        }
+        return new ProjectionView(this, source, projection.root);
+    }
+
     /**
      * Adds a node to a Map given a dot-notation path.
      * All nodes are treated as Maps, with no support for Collections.
@@ -253,16 +881,80 @@ public class MapUtils {
         if (map == null) {
             return null;
         }
-        String[] nodes = path.split("\\.");
-        Map current = map;
-        for (String node : nodes) {
-            if (!current.containsKey(node)) {
-                Map nodeMap = this.mapSupplier.getSupplier().apply(1);
-                current.put(node, nodeMap);
+        MetricsRecorder recorder = this.begin(Operation.ADD_NODE);
+        try {
+            return this.addNodePath(map, this.compilePath(path));
+        } finally {
+            this.end(recorder, path);
+        }
+    }
+
+    /**
+     * Adds a node to a Map given a compiled path.
+     * All nodes are treated as Maps, with no support for Collections.
+     * @param map The target Map
+     * @param path Compiled path.
+     * @return The final path node being added.
+     */
+    public Map addNodePath(Map map, MapPath path) {
+        if (map == null) {
+            return null;
+        }
+        MetricsRecorder recorder = this.begin(Operation.ADD_NODE);
+        try {
+            Map current = map;
+            for (int i = 0; i < path.size(); i++) {
+                current = this.getOrAddNode(current, path.getKey(i), this.hintPath(path, i));
             }
-            current = (Map) current.get(node);
+            return current;
+        } finally {
+            this.end(recorder, path);
         }
-        return current;
+    }
+
+    /**
+     * @return Whether any size hints are set or being learned.
+     */
+    boolean isSizeHinting() {
+        return this.sizeHints.isEnabled();
+    }
+
+    /**
+     * @param path Dot-notation path of a node, or key of a collection within its parent.
+     * @return The hint for nodes created at the given path, or null if there is none.
+     */
+    SizeHints.Hint sizeHint(String path) {
+        return path != null && this.sizeHints.isEnabled() ? this.sizeHints.hint(path) : null;
+    }
+
+    /**
+     * @return The path to look up the size hint of the node at the given segment by, or null if there are no hints.
+     */
+    private String hintPath(MapPath path, int i) {
+        return this.sizeHints.isEnabled() ? path.getPrefix(i) : null;
+    }
+
+    /**
+     * @param path Dot-notation path of the node, used to look up its size hint; may be null.
+     */
+    private Map getOrAddNode(Map current, String node, String path) {
+        Object next = current.get(node);
+        MetricsRecorder recorder = this.recorder();
+        if (recorder != null) {
+            recorder.nodesVisited++;
+        }
+        if (next == null && !current.containsKey(node)) {
+            SizeHints.Hint hint = this.sizeHint(path);
+            next = this.mapSupplier.getSupplier().apply(hint != null ? hint.size(1) : 1);
+            if (hint != null) {
+                hint.created(next);
+            }
+            current.put(node, next);
+            if (recorder != null) {
+                recorder.nodesCreated++;
+            }
+        }
+        return (Map) next;
     }
 
 }
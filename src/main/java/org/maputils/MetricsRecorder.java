@@ -0,0 +1,81 @@
+package org.maputils;
+
+import org.maputils.metrics.Operation;
+import org.maputils.metrics.OperationMetrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Collects metrics for the operation currently running on a thread.
+ */
+class MetricsRecorder {
+
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    long pathsCompiled;
+    long nodesVisited;
+    long collectionsMerged;
+    long collectionItemsMerged;
+    long collectionKeyLookups;
+    long nodesCreated;
+    private boolean active;
+    private Operation operation;
+    private long start;
+    private long startAllocatedBytes;
+
+    private static com.sun.management.ThreadMXBean threads() {
+        try {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+                if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) {
+                    return sunThreads;
+                }
+            }
+        } catch (LinkageError e) {
+            // com.sun.management is not available on this JVM
+        }
+        return null;
+    }
+
+    boolean isActive() {
+        return this.active;
+    }
+
+    void start(Operation operation) {
+        this.active = true;
+        this.operation = operation;
+        this.pathsCompiled = 0;
+        this.nodesVisited = 0;
+        this.collectionsMerged = 0;
+        this.collectionItemsMerged = 0;
+        this.collectionKeyLookups = 0;
+        this.nodesCreated = 0;
+        this.startAllocatedBytes = allocatedBytes();
+        this.start = System.nanoTime();
+    }
+
+    OperationMetrics finish(String path) {
+        long duration = System.nanoTime() - this.start;
+        long allocated = allocatedBytes();
+        this.active = false;
+        return new OperationMetrics(
+                this.operation,
+                path,
+                duration,
+                this.pathsCompiled,
+                this.nodesVisited,
+                this.collectionsMerged,
+                this.collectionItemsMerged,
+                this.collectionKeyLookups,
+                this.nodesCreated,
+                allocated < 0 ? -1 : allocated - this.startAllocatedBytes
+        );
+    }
+
+    private static long allocatedBytes() {
+        return THREADS != null ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+}
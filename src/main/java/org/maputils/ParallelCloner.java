@@ -0,0 +1,97 @@
+package org.maputils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Performs {@link MapUtils#cloneDeep(Map)} on a ForkJoinPool.
+ * The entries of a node with at least {@link MapUtils#getParallelThreshold()} entries are split into ranges which are
+ * copied concurrently, and the node is filled in its original order once they have been copied. Smaller nodes are
+ * copied on the current thread by a {@link Cloner}, so only nodes above the threshold add to the stack depth.
+ * Assumes the source is a tree, i.e. subtrees are not shared between multiple parents. Nothing is counted in the
+ * metrics recorders, as a worker thread's recorder may belong to an unrelated operation.
+ */
+@SuppressWarnings("rawtypes,unchecked")
+class ParallelCloner {
+
+    private final MapUtils mapUtils;
+    private final int threshold;
+
+    ParallelCloner(MapUtils mapUtils) {
+        this.mapUtils = mapUtils;
+        this.threshold = Math.max(1, mapUtils.getParallelThreshold());
+    }
+
+    Object copy(Object source) {
+        return this.mapUtils.getForkJoinPool().invoke(ForkJoinTask.adapt(() -> this.copyValue(source)));
+    }
+
+    private Object copyValue(Object value) {
+        if (!Cloner.isContainer(value)) {
+            return value;
+        }
+        int size = value instanceof Map ? ((Map) value).size() : ((Collection) value).size();
+        if (size < this.threshold) {
+            return new Cloner(this.mapUtils, false, null).copy(value);
+        }
+        Object copy = this.mapUtils.createCopy(value);
+        if (value instanceof Map) {
+            Map<String, Object> source = (Map<String, Object>) value;
+            String[] keys = new String[size];
+            Object[] values = new Object[size];
+            int i = 0;
+            for (Map.Entry<String, Object> entry : source.entrySet()) {
+                keys[i] = entry.getKey();
+                values[i++] = entry.getValue();
+            }
+            new CopyAction(values, 0, values.length).invoke();
+            Map<String, Object> map = (Map<String, Object>) copy;
+            // ConcurrentMaps do not permit null values
+            boolean skipNulls = map instanceof ConcurrentMap;
+            for (i = 0; i < keys.length; i++) {
+                if (values[i] != null || !skipNulls) {
+                    map.put(keys[i], values[i]);
+                }
+            }
+        } else {
+            Object[] items = ((Collection<Object>) value).toArray();
+            new CopyAction(items, 0, items.length).invoke();
+            ((Collection<Object>) copy).addAll(Arrays.asList(items));
+        }
+        return copy;
+    }
+
+    /**
+     * Replaces each value in a range with its copy.
+     */
+    private class CopyAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Object[] values;
+        private final int from;
+        private final int to;
+
+        private CopyAction(Object[] values, int from, int to) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= threshold) {
+                for (int i = this.from; i < this.to; i++) {
+                    this.values[i] = copyValue(this.values[i]);
+                }
+            } else {
+                int mid = (this.from + this.to) >>> 1;
+                invokeAll(new CopyAction(this.values, this.from, mid), new CopyAction(this.values, mid, this.to));
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,170 @@
+package org.maputils;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Performs {@link MapUtils#merge(Map, Map, Map)} on a ForkJoinPool.
+ * Nested Maps and keyed collection items only mutate their own subtree, so once a node has at least
+ * {@link MapUtils#getParallelThreshold()} of them they are merged concurrently; writes to the shared parent node
+ * are deferred until its subtrees have been merged. Smaller nodes are merged on the current thread.
+ * Assumes the target and source are trees, i.e. subtrees are not shared between multiple parents.
+ */
+@SuppressWarnings("rawtypes,unchecked")
+class ParallelMerger {
+
+    private final MapUtils mapUtils;
+    private final Map<String, String> collectionKeys;
+    private final int threshold;
+
+    ParallelMerger(MapUtils mapUtils, Map<String, String> collectionKeys) {
+        this.mapUtils = mapUtils;
+        this.collectionKeys = collectionKeys;
+        this.threshold = Math.max(1, mapUtils.getParallelThreshold());
+    }
+
+    void merge(Map<String, Object> target, Map<String, Object> source) {
+        this.mapUtils.getForkJoinPool().invoke(ForkJoinTask.adapt(() -> this.mergeMap(target, source)));
+    }
+
+    private void mergeMap(Map<String, Object> target, Map<String, Object> source) {
+        List<Runnable> work = null;
+        List<CollectionMerge> collections = null;
+        for (Map.Entry<String, Object> entry : source.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            Object targetValue = target.get(key);
+            if (!target.containsKey(key)) {
+                target.put(key, value);
+            } else if (value instanceof Map) {
+                if (targetValue instanceof Map) {
+                    if (work == null) {
+                        work = new ArrayList<>();
+                    }
+                    work.add(() -> this.mergeMap((Map<String, Object>) targetValue, (Map<String, Object>) value));
+                } else {
+                    target.put(key, value);
+                }
+            } else if (this.mapUtils.isCollection(value) && this.mapUtils.isCollection(targetValue)) {
+                CollectionMerge merge = new CollectionMerge(key, (Collection<Object>) targetValue, (Collection<Object>) value);
+                if (work == null) {
+                    work = new ArrayList<>();
+                }
+                if (collections == null) {
+                    collections = new ArrayList<>();
+                }
+                work.add(merge);
+                collections.add(merge);
+            } else {
+                target.put(key, value);
+            }
+        }
+        if (work != null) {
+            this.run(work);
+        }
+        if (collections != null) {
+            // the key already exists, so replacing its value leaves the iteration order of target untouched
+            for (CollectionMerge merge : collections) {
+                target.put(merge.key, merge.result);
+            }
+        }
+    }
+
+    private Collection<Object> mergeCollection(Collection<Object> target, Collection<Object> source, String key) {
+        Object listValue = source.size() > 0 ? source.iterator().next() : null;
+        Object targetValue = target.size() > 0 ? target.iterator().next() : null;
+        if (listValue == null) {
+            return target;
+        }
+        if (!(listValue instanceof Map && targetValue instanceof Map) || this.collectionKeys == null || !this.collectionKeys.containsKey(key)) {
+            return this.mapUtils.mergeUniqueCollectionItems(target, source, key);
+        }
+        Map<Object, Map> targetValues = new LinkedHashMap<>(target.size());
+        CollectionKey collectionKey = this.mapUtils.compileCollectionKey(this.collectionKeys.get(key));
+        for (Object val : target) {
+            targetValues.put(this.mapUtils.getCollectionKey((Map<String, Object>) val, collectionKey), (Map) val);
+        }
+        // group source items by the target item they merge into, preserving the order in which they are merged
+        Map<Object, List<Map>> pending = new LinkedHashMap<>();
+        for (Object val : source) {
+            Object currentKey = this.mapUtils.getCollectionKey((Map<String, Object>) val, collectionKey);
+            if (targetValues.containsKey(currentKey)) {
+                pending.computeIfAbsent(currentKey, k -> new ArrayList<>(1)).add((Map) val);
+            } else {
+                targetValues.put(currentKey, (Map) val);
+            }
+        }
+        List<Runnable> work = new ArrayList<>(pending.size());
+        for (Map.Entry<Object, List<Map>> entry : pending.entrySet()) {
+            Map<String, Object> item = targetValues.get(entry.getKey());
+            List<Map> values = entry.getValue();
+            work.add(() -> {
+                for (Map val : values) {
+                    this.mergeMap(item, val);
+                }
+            });
+        }
+        this.run(work);
+        return this.mapUtils.mergeCollectionItems(target, targetValues.values(), key);
+    }
+
+    private void run(List<Runnable> work) {
+        if (work.size() < this.threshold) {
+            for (Runnable runnable : work) {
+                runnable.run();
+            }
+        } else {
+            new MergeAction(work, 0, work.size()).invoke();
+        }
+    }
+
+    private class CollectionMerge implements Runnable {
+
+        private final String key;
+        private final Collection<Object> target;
+        private final Collection<Object> source;
+        private Collection<Object> result;
+
+        private CollectionMerge(String key, Collection<Object> target, Collection<Object> source) {
+            this.key = key;
+            this.target = target;
+            this.source = source;
+        }
+
+        @Override
+        public void run() {
+            this.result = mergeCollection(this.target, this.source, this.key);
+        }
+
+    }
+
+    private class MergeAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Runnable> work;
+        private final int from;
+        private final int to;
+
+        private MergeAction(List<Runnable> work, int from, int to) {
+            this.work = work;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= threshold) {
+                for (int i = this.from; i < this.to; i++) {
+                    this.work.get(i).run();
+                }
+            } else {
+                int mid = (this.from + this.to) >>> 1;
+                invokeAll(new MergeAction(this.work, this.from, mid), new MergeAction(this.work, mid, this.to));
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,235 @@
+package org.maputils;
+
+import java.util.*;
+
+/**
+ * Produces and applies {@link MapPatch}es.
+ * Lists listed in collectionKeys are compared item by item, matching items by their collection key as
+ * {@link MapUtils#merge(Map, Map, Map)} does, as long as their identifiers are unique and the items kept appear
+ * in their original order followed by the items added; otherwise, as for other Lists, the whole List is replaced.
+ * Sets are compared by item equality.
+ */
+@SuppressWarnings("rawtypes,unchecked")
+class Patcher {
+
+    private final MapUtils mapUtils;
+    private final Map<String, String> collectionKeys;
+    private final List<MapPatch.Change> changes = new ArrayList<>();
+    private final List<Object> segments = new ArrayList<>();
+
+    Patcher(MapUtils mapUtils, Map<String, String> collectionKeys) {
+        this.mapUtils = mapUtils;
+        this.collectionKeys = collectionKeys;
+    }
+
+    MapPatch diff(Map<String, Object> a, Map<String, Object> b) {
+        this.diffMaps(a, b);
+        return new MapPatch(this.changes);
+    }
+
+    private void diffMaps(Map<String, Object> a, Map<String, Object> b) {
+        for (String key : a.keySet()) {
+            if (!b.containsKey(key)) {
+                this.addChange(MapPatch.Type.REMOVE, key, null);
+            }
+        }
+        for (Map.Entry<String, Object> entry : b.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            Object current = a.get(key);
+            if (current == null && !a.containsKey(key)) {
+                this.addChange(MapPatch.Type.ADD, key, value);
+            } else if (current != value) {
+                this.diffValues(key, current, value);
+            }
+        }
+    }
+
+    private void diffValues(String key, Object a, Object b) {
+        if (a instanceof Map && b instanceof Map) {
+            this.segments.add(key);
+            this.diffMaps((Map<String, Object>) a, (Map<String, Object>) b);
+            this.segments.remove(this.segments.size() - 1);
+        } else if (a instanceof List && b instanceof List && this.collectionKeys != null && this.collectionKeys.containsKey(key)) {
+            this.segments.add(key);
+            boolean patched = this.diffKeyedLists((List<Object>) a, (List<Object>) b, this.mapUtils.compileCollectionKey(this.collectionKeys.get(key)));
+            this.segments.remove(this.segments.size() - 1);
+            if (!patched) {
+                this.addChange(MapPatch.Type.REPLACE, key, b);
+            }
+        } else if (a instanceof Set && b instanceof Set) {
+            this.segments.add(key);
+            this.diffSets((Set<Object>) a, (Set<Object>) b);
+            this.segments.remove(this.segments.size() - 1);
+        } else if (!Objects.equals(a, b)) {
+            this.addChange(MapPatch.Type.REPLACE, key, b);
+        }
+    }
+
+    /**
+     * @return false if the Lists cannot be described item by item, without having recorded any changes.
+     */
+    private boolean diffKeyedLists(List<Object> a, List<Object> b, CollectionKey collectionKey) {
+        Object[] items = a.toArray();
+        Object[] ids = new Object[items.length];
+        Map<Object, Integer> positions = new HashMap<>(a.size() * 4 / 3 + 1);
+        int i = 0;
+        for (Object item : a) {
+            if (!(item instanceof Map)) {
+                return false;
+            }
+            ids[i] = this.mapUtils.getCollectionKey((Map<String, Object>) item, collectionKey);
+            if (positions.put(ids[i], i) != null) {
+                return false;
+            }
+            i++;
+        }
+        Object[] sourceIds = new Object[b.size()];
+        Set<Object> kept = new HashSet<>(b.size() * 4 / 3 + 1);
+        int last = -1;
+        boolean adding = false;
+        i = 0;
+        for (Object item : b) {
+            if (!(item instanceof Map)) {
+                return false;
+            }
+            sourceIds[i] = this.mapUtils.getCollectionKey((Map<String, Object>) item, collectionKey);
+            if (!kept.add(sourceIds[i])) {
+                return false;
+            }
+            Integer position = positions.get(sourceIds[i]);
+            if (position != null) {
+                if (adding || position < last) {
+                    return false;
+                }
+                last = position;
+            } else {
+                adding = true;
+            }
+            i++;
+        }
+        i = 0;
+        for (Object item : b) {
+            Integer position = positions.get(sourceIds[i]);
+            if (position != null) {
+                Object current = items[position];
+                if (current != item) {
+                    this.segments.add(new MapPatch.Item(collectionKey, sourceIds[i], position));
+                    this.diffMaps((Map<String, Object>) current, (Map<String, Object>) item);
+                    this.segments.remove(this.segments.size() - 1);
+                }
+            }
+            i++;
+        }
+        // removed in descending order so that the positions of the remaining removals stay valid
+        for (i = ids.length - 1; i >= 0; i--) {
+            if (!kept.contains(ids[i])) {
+                this.addChange(MapPatch.Type.REMOVE, new MapPatch.Item(collectionKey, ids[i], i), null);
+            }
+        }
+        i = 0;
+        for (Object item : b) {
+            if (!positions.containsKey(sourceIds[i++])) {
+                this.addItemChange(MapPatch.Type.ADD_ITEM, item);
+            }
+        }
+        return true;
+    }
+
+    private void diffSets(Set<Object> a, Set<Object> b) {
+        for (Object item : a) {
+            if (!b.contains(item)) {
+                this.addItemChange(MapPatch.Type.REMOVE_ITEM, item);
+            }
+        }
+        for (Object item : b) {
+            if (!a.contains(item)) {
+                this.addItemChange(MapPatch.Type.ADD_ITEM, item);
+            }
+        }
+    }
+
+    /**
+     * Records a change to the given key or item of the current node.
+     */
+    private void addChange(MapPatch.Type type, Object segment, Object value) {
+        int size = this.segments.size();
+        Object[] path = this.segments.toArray(new Object[size + 1]);
+        path[size] = segment;
+        this.changes.add(new MapPatch.Change(type, path, value));
+    }
+
+    /**
+     * Records a change to the items of the current collection.
+     */
+    private void addItemChange(MapPatch.Type type, Object item) {
+        this.changes.add(new MapPatch.Change(type, this.segments.toArray(), item));
+    }
+
+    void apply(Map<String, Object> target, MapPatch patch) {
+        for (MapPatch.Change change : patch.getChanges()) {
+            Object[] path = change.segments;
+            MapPatch.Type type = change.getType();
+            boolean itemChange = type == MapPatch.Type.ADD_ITEM || type == MapPatch.Type.REMOVE_ITEM;
+            int parentSize = itemChange ? path.length : path.length - 1;
+            Object parent = target;
+            for (int i = 0; i < parentSize && parent != null; i++) {
+                parent = this.step(parent, path[i]);
+            }
+            if (itemChange) {
+                if (parent instanceof Collection) {
+                    if (type == MapPatch.Type.ADD_ITEM) {
+                        ((Collection<Object>) parent).add(change.getValue());
+                    } else {
+                        ((Collection<Object>) parent).remove(change.getValue());
+                    }
+                }
+            } else if (path[parentSize] instanceof MapPatch.Item) {
+                if (parent instanceof List) {
+                    int index = this.indexOf((List<Object>) parent, (MapPatch.Item) path[parentSize]);
+                    if (index >= 0) {
+                        ((List<Object>) parent).remove(index);
+                    }
+                }
+            } else if (parent instanceof Map) {
+                if (type == MapPatch.Type.REMOVE) {
+                    ((Map<String, Object>) parent).remove(path[parentSize]);
+                } else {
+                    ((Map<String, Object>) parent).put((String) path[parentSize], change.getValue());
+                }
+            }
+            // changes whose parent no longer exists in the target are skipped
+        }
+    }
+
+    private Object step(Object node, Object segment) {
+        if (segment instanceof MapPatch.Item) {
+            if (node instanceof List) {
+                int index = this.indexOf((List<Object>) node, (MapPatch.Item) segment);
+                return index >= 0 ? ((List<Object>) node).get(index) : null;
+            }
+            return null;
+        }
+        return node instanceof Map ? ((Map<String, Object>) node).get(segment) : null;
+    }
+
+    private int indexOf(List<Object> list, MapPatch.Item item) {
+        if (item.index < list.size() && this.matches(list.get(item.index), item)) {
+            return item.index;
+        }
+        // the target has changed since the patch was produced; fall back to searching for the item
+        int index = 0;
+        for (Object value : list) {
+            if (this.matches(value, item)) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    private boolean matches(Object value, MapPatch.Item item) {
+        return value instanceof Map && Objects.equals(this.mapUtils.getCollectionKey((Map<String, Object>) value, item.collectionKey), item.id);
+    }
+
+}
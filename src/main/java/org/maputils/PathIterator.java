@@ -0,0 +1,127 @@
+package org.maputils;
+
+import java.util.*;
+
+/**
+ * Walks the values matching a {@link PathPattern} depth-first, keeping one iterator per segment so that each
+ * collection is only advanced as far as the consumer reads. Null values and values which cannot be descended into
+ * are skipped.
+ */
+@SuppressWarnings("unchecked")
+class PathIterator implements Iterator<Object> {
+
+    private final PathPattern pattern;
+    private final Iterator<?>[] iterators;
+    private int depth;
+    private Object next;
+
+    PathIterator(Map<String, Object> map, PathPattern pattern) {
+        this.pattern = pattern;
+        this.iterators = new Iterator<?>[pattern.size() + 1];
+        this.iterators[0] = Collections.singleton(map).iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+        int last = this.pattern.size();
+        while (this.next == null && this.depth >= 0) {
+            Iterator<?> iterator = this.iterators[this.depth];
+            if (!iterator.hasNext()) {
+                this.iterators[this.depth--] = null;
+                continue;
+            }
+            Object value = iterator.next();
+            if (value == null) {
+                continue;
+            }
+            if (this.depth == last) {
+                this.next = value;
+            } else {
+                this.iterators[this.depth + 1] = this.children(value, this.depth);
+                this.depth++;
+            }
+        }
+        return this.next != null;
+    }
+
+    @Override
+    public Object next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object next = this.next;
+        this.next = null;
+        return next;
+    }
+
+    private Iterator<?> children(Object value, int segment) {
+        switch (this.pattern.types[segment]) {
+            case PathPattern.WILDCARD:
+                if (value instanceof Map) {
+                    return ((Map<String, Object>) value).values().iterator();
+                }
+                if (value instanceof List || value instanceof Set) {
+                    return ((Collection<Object>) value).iterator();
+                }
+                return Collections.emptyIterator();
+            case PathPattern.SLICE:
+                if (value instanceof List || value instanceof Set) {
+                    return this.slice((Collection<Object>) value, segment);
+                }
+                return Collections.emptyIterator();
+            default:
+                if (value instanceof Map) {
+                    return Collections.singleton(((Map<String, Object>) value).get(this.pattern.keys[segment])).iterator();
+                }
+                int index = this.pattern.indexes[segment];
+                if (value instanceof List && index != MapPath.NO_INDEX && index < ((List<Object>) value).size()) {
+                    return Collections.singleton(((List<Object>) value).get(index)).iterator();
+                }
+                return Collections.emptyIterator();
+        }
+    }
+
+    private Iterator<Object> slice(Collection<Object> collection, int segment) {
+        int size = collection.size();
+        int start = bound(this.pattern.starts[segment], 0, size);
+        int end = bound(this.pattern.ends[segment], size, size);
+        if (start >= end) {
+            return Collections.emptyIterator();
+        }
+        if (collection instanceof List) {
+            // subList is a view, so only the items read are visited
+            return ((List<Object>) collection).subList(start, end).iterator();
+        }
+        Iterator<Object> iterator = collection.iterator();
+        for (int i = 0; i < start; i++) {
+            iterator.next();
+        }
+        int count = end - start;
+        return new Iterator<Object>() {
+            private int remaining = count;
+
+            @Override
+            public boolean hasNext() {
+                return this.remaining > 0 && iterator.hasNext();
+            }
+
+            @Override
+            public Object next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                this.remaining--;
+                return iterator.next();
+            }
+        };
+    }
+
+    private static int bound(Integer bound, int missing, int size) {
+        if (bound == null) {
+            return missing;
+        }
+        int index = bound < 0 ? size + bound : bound;
+        return Math.max(0, Math.min(size, index));
+    }
+
+}
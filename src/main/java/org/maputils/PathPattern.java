@@ -0,0 +1,138 @@
+package org.maputils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A dot-notation path which may contain wildcard and slice segments, parsed once for reuse.
+ * A {@code *} segment matches every value of a Map or every item of a List or Set. A {@code [start:end]} segment
+ * matches the items of a List or Set from start (inclusive) to end (exclusive), either of which may be omitted or
+ * negative to count from the end; a slice may also follow a key, as in {@code people[0:10]}.
+ * Other segments are Map keys or List indexes as in {@link MapPath}.
+ * Instances are immutable and may be shared between threads.
+ */
+public final class PathPattern {
+
+    static final int KEY = 0;
+    static final int WILDCARD = 1;
+    static final int SLICE = 2;
+
+    private final String pattern;
+    final int[] types;
+    final String[] keys;
+    final int[] indexes;
+    /**
+     * Slice bounds, or null for an omitted bound.
+     */
+    final Integer[] starts;
+    final Integer[] ends;
+
+    private PathPattern(String pattern, int[] types, String[] keys, int[] indexes, Integer[] starts, Integer[] ends) {
+        this.pattern = pattern;
+        this.types = types;
+        this.keys = keys;
+        this.indexes = indexes;
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * Parses a dot-notation path into a reusable PathPattern.
+     * Bracketed segments which are not valid slices are treated as Map keys.
+     * @param pattern Dot-notation path, which may contain wildcard and slice segments
+     * @return The compiled pattern
+     */
+    public static PathPattern compile(String pattern) {
+        List<Integer> types = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        List<Integer> starts = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        if (pattern != null && pattern.trim().length() > 0) {
+            for (String segment : pattern.split("\\.")) {
+                int bracket = segment.lastIndexOf('[');
+                Integer[] slice = bracket >= 0 && segment.endsWith("]") ? parseSlice(segment.substring(bracket + 1, segment.length() - 1)) : null;
+                String key = slice != null ? segment.substring(0, bracket) : segment;
+                if (slice == null || bracket > 0) {
+                    boolean wildcard = slice == null && "*".equals(key);
+                    types.add(wildcard ? WILDCARD : KEY);
+                    keys.add(key);
+                    indexes.add(wildcard ? MapPath.NO_INDEX : MapPath.parseIndex(key));
+                    starts.add(null);
+                    ends.add(null);
+                }
+                if (slice != null) {
+                    types.add(SLICE);
+                    keys.add(null);
+                    indexes.add(MapPath.NO_INDEX);
+                    starts.add(slice[0]);
+                    ends.add(slice[1]);
+                }
+            }
+        }
+        int[] typeArray = new int[types.size()];
+        int[] indexArray = new int[types.size()];
+        for (int i = 0; i < typeArray.length; i++) {
+            typeArray[i] = types.get(i);
+            indexArray[i] = indexes.get(i);
+        }
+        return new PathPattern(
+                pattern != null ? pattern : "",
+                typeArray,
+                keys.toArray(new String[0]),
+                indexArray,
+                starts.toArray(new Integer[0]),
+                ends.toArray(new Integer[0])
+        );
+    }
+
+    /**
+     * @return The start and end of a slice such as {@code 1:5}, or null if it is not a valid slice.
+     */
+    private static Integer[] parseSlice(String slice) {
+        int colon = slice.indexOf(':');
+        if (colon < 0 || slice.indexOf(':', colon + 1) >= 0) {
+            return null;
+        }
+        try {
+            String start = slice.substring(0, colon).trim();
+            String end = slice.substring(colon + 1).trim();
+            return new Integer[] {
+                    start.isEmpty() ? null : Integer.valueOf(start),
+                    end.isEmpty() ? null : Integer.valueOf(end)
+            };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return The number of segments in this pattern.
+     */
+    public int size() {
+        return this.types.length;
+    }
+
+    public boolean isEmpty() {
+        return this.types.length == 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof PathPattern && this.pattern.equals(((PathPattern) o).pattern);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.pattern.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.pattern;
+    }
+
+}
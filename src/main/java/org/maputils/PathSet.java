@@ -0,0 +1,103 @@
+package org.maputils;
+
+import java.util.*;
+
+/**
+ * A set of dot-notation paths compiled into a trie, so that paths sharing a prefix are resolved by walking that prefix once.
+ * Instances are immutable and may be shared between threads and reused across calls to {@link MapUtils#readAll(Map, PathSet)}.
+ */
+public final class PathSet {
+
+    private final Node root;
+    private final int size;
+
+    private PathSet(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Compiles dot-notation paths into a reusable PathSet. Blank paths are ignored.
+     * @param paths Dot-notation paths
+     * @return The compiled paths
+     */
+    public static PathSet compile(Collection<String> paths) {
+        Builder root = new Builder(null, MapPath.NO_INDEX);
+        int size = 0;
+        if (paths != null) {
+            for (String path : paths) {
+                MapPath compiled = MapPath.compile(path);
+                if (compiled.isEmpty()) {
+                    continue;
+                }
+                Builder current = root;
+                for (int i = 0; i < compiled.size(); i++) {
+                    current = current.child(compiled.getKey(i), compiled.getIndex(i));
+                }
+                if (!current.paths.contains(path)) {
+                    current.paths.add(path);
+                    size++;
+                }
+            }
+        }
+        return new PathSet(root.build(), size);
+    }
+
+    /**
+     * @return The number of distinct paths in this set.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    Node getRoot() {
+        return this.root;
+    }
+
+    /**
+     * A single path segment, holding the paths which end at it and the segments which follow it.
+     */
+    static final class Node {
+
+        final String key;
+        final int index;
+        final String[] paths;
+        final Node[] children;
+
+        private Node(String key, int index, String[] paths, Node[] children) {
+            this.key = key;
+            this.index = index;
+            this.paths = paths;
+            this.children = children;
+        }
+
+    }
+
+    private static final class Builder {
+
+        private final String key;
+        private final int index;
+        private final List<String> paths = new ArrayList<>(1);
+        private final Map<String, Builder> children = new LinkedHashMap<>();
+
+        private Builder(String key, int index) {
+            this.key = key;
+            this.index = index;
+        }
+
+        private Builder child(String key, int index) {
+            return this.children.computeIfAbsent(key, k -> new Builder(key, index));
+        }
+
+        private Node build() {
+            Node[] nodes = new Node[this.children.size()];
+            int i = 0;
+            for (Builder child : this.children.values()) {
+                nodes[i++] = child.build();
+            }
+            return new Node(this.key, this.index, this.paths.toArray(new String[0]), nodes);
+        }
+
+    }
+
+}
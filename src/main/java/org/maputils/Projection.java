@@ -0,0 +1,81 @@
+package org.maputils;
+
+import java.util.*;
+
+/**
+ * A keys mapping for {@link MapUtils#project(Map, Projection)} which has been compiled once for reuse across records.
+ * Target paths are arranged into a tree of nested nodes, each leaf holding the pre-parsed source path it reads.
+ * Instances are immutable and may be shared between threads.
+ */
+public final class Projection {
+
+    final Node root;
+
+    private Projection(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Compiles a keys mapping into a reusable Projection.
+     * Keys containing dots are nested, and a later key replaces an earlier one with the same target path; a nested key
+     * below an earlier leaf replaces the leaf with a nested node.
+     * @param keys The paths to project. Left-hand side contains paths in the view, right-hand side contains paths to read from source.
+     * @return The compiled projection
+     */
+    public static Projection compile(Map<String, String> keys) {
+        Node root = new Node();
+        if (keys != null) {
+            for (Map.Entry<String, String> entry : keys.entrySet()) {
+                MapPath targetPath = MapPath.compile(entry.getKey());
+                if (targetPath.isEmpty()) {
+                    continue;
+                }
+                Node current = root;
+                int last = targetPath.size() - 1;
+                for (int i = 0; i < last; i++) {
+                    Object child = current.children.get(targetPath.getKey(i));
+                    if (!(child instanceof Node)) {
+                        child = new Node();
+                        current.children.put(targetPath.getKey(i), child);
+                    }
+                    current = (Node) child;
+                }
+                current.children.put(targetPath.getKey(last), MapPath.compile(entry.getValue()));
+            }
+        }
+        root.seal();
+        return new Projection(root);
+    }
+
+    /**
+     * A node of the view; each child is either a MapPath read from the source or a nested Node.
+     */
+    static final class Node {
+
+        final Map<String, Object> children = new LinkedHashMap<>();
+        /**
+         * The children in order and the position of each by key, so views can remember what they resolve by position.
+         */
+        String[] keys;
+        Object[] values;
+        Map<String, Integer> slots;
+
+        private void seal() {
+            int size = this.children.size();
+            this.keys = new String[size];
+            this.values = new Object[size];
+            this.slots = new HashMap<>(size * 4 / 3 + 1);
+            int i = 0;
+            for (Map.Entry<String, Object> child : this.children.entrySet()) {
+                this.keys[i] = child.getKey();
+                this.values[i] = child.getValue();
+                this.slots.put(child.getKey(), i++);
+                if (child.getValue() instanceof Node) {
+                    ((Node) child.getValue()).seal();
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,127 @@
+package org.maputils;
+
+import java.util.*;
+
+/**
+ * A read-only Map which resolves the paths of a {@link Projection.Node} against a source when a key is first accessed.
+ * Keys whose path does not resolve, and nested nodes none of whose paths resolve, are absent from the view.
+ * Each key's value, or its absence, is remembered once resolved, along with each nested view, so repeated reads and
+ * size or emptiness checks do not resolve any path again. The view therefore reflects changes made to the source only
+ * for keys which have not been read yet. Concurrent readers may resolve a key more than once.
+ */
+class ProjectionView extends AbstractMap<String, Object> {
+
+    private static final Object ABSENT = new Object();
+
+    private final MapUtils mapUtils;
+    private final Map<String, Object> source;
+    private final Projection.Node node;
+    /**
+     * The resolved value of each child by position; null if not resolved yet, ABSENT if it did not resolve.
+     */
+    private final Object[] resolved;
+
+    ProjectionView(MapUtils mapUtils, Map<String, Object> source, Projection.Node node) {
+        this.mapUtils = mapUtils;
+        this.source = source;
+        this.node = node;
+        this.resolved = new Object[node.values.length];
+    }
+
+    @Override
+    public Object get(Object key) {
+        Integer slot = this.node.slots.get(key);
+        return slot != null ? this.value(slot) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.get(key) != null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (int i = 0; i < this.resolved.length; i++) {
+            if (this.value(i) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < this.resolved.length; i++) {
+            if (this.value(i) != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    private Object value(int i) {
+        Object value = this.resolved[i];
+        if (value == null) {
+            value = this.resolve(this.node.values[i]);
+            this.resolved[i] = value != null ? value : ABSENT;
+        }
+        return value != ABSENT ? value : null;
+    }
+
+    private Object resolve(Object child) {
+        if (child instanceof MapPath) {
+            return this.mapUtils.resolve(this.source, (MapPath) child);
+        }
+        if (child instanceof Projection.Node) {
+            ProjectionView view = new ProjectionView(this.mapUtils, this.source, (Projection.Node) child);
+            return view.isEmpty() ? null : view;
+        }
+        return null;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return ProjectionView.this.size();
+            }
+        };
+    }
+
+    private class EntryIterator implements Iterator<Entry<String, Object>> {
+
+        private int child;
+        private Entry<String, Object> next;
+
+        @Override
+        public boolean hasNext() {
+            while (this.next == null && this.child < resolved.length) {
+                int i = this.child++;
+                Object value = value(i);
+                if (value != null) {
+                    this.next = new SimpleImmutableEntry<>(node.keys[i], value);
+                }
+            }
+            return this.next != null;
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry<String, Object> next = this.next;
+            this.next = null;
+            return next;
+        }
+
+    }
+
+}
@@ -0,0 +1,130 @@
+package org.maputils;
+
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Expected sizes of the Maps and Collections created at each path, passed to the suppliers when nodes are created.
+ * Explicit hints are used as given. When learning, the node most recently created at a path is remembered weakly and
+ * its size is sampled when the next node is created there, by which time it has usually been filled; the learned size
+ * is a running average of these samples. Races between threads only lose samples, so no locking is needed.
+ */
+final class SizeHints {
+
+    /**
+     * Bounds how many paths sizes are learned for; further paths are not learned.
+     */
+    private static final int MAX_LEARNED_PATHS = 1024;
+
+    private final Map<String, Hint> hints = new ConcurrentHashMap<>();
+    private volatile boolean learning;
+    /**
+     * The number of paths with an explicit hint, so hints are disabled again once every one has been removed.
+     */
+    private final AtomicInteger explicitCount = new AtomicInteger();
+
+    boolean isEnabled() {
+        return this.learning || this.explicitCount.get() > 0;
+    }
+
+    boolean isLearning() {
+        return this.learning;
+    }
+
+    void setLearning(boolean learning) {
+        this.learning = learning;
+        if (!learning) {
+            this.hints.values().removeIf(hint -> hint.explicit <= 0);
+        }
+    }
+
+    void set(String path, int size) {
+        this.hints.compute(path, (p, hint) -> {
+            int previous = hint != null ? hint.explicit : 0;
+            if (size > 0) {
+                if (hint == null) {
+                    hint = new Hint();
+                }
+                hint.explicit = size;
+                if (previous <= 0) {
+                    this.explicitCount.incrementAndGet();
+                }
+                return hint;
+            }
+            if (hint == null) {
+                return null;
+            }
+            hint.explicit = 0;
+            if (previous > 0) {
+                this.explicitCount.decrementAndGet();
+            }
+            return this.learning ? hint : null;
+        });
+    }
+
+    /**
+     * @return The expected size of nodes at the given path, or 0 if it is not known.
+     */
+    int get(String path) {
+        Hint hint = this.hints.get(path);
+        if (hint == null) {
+            return 0;
+        }
+        return hint.explicit > 0 ? hint.explicit : hint.learned;
+    }
+
+    /**
+     * @return The hint for nodes created at the given path, or null if there is none and it is not being learned.
+     */
+    Hint hint(String path) {
+        Hint hint = this.hints.get(path);
+        if (hint == null && this.learning && this.hints.size() < MAX_LEARNED_PATHS) {
+            hint = this.hints.computeIfAbsent(path, p -> new Hint());
+        }
+        return hint;
+    }
+
+    static final class Hint {
+
+        private volatile int explicit;
+        private volatile int learned;
+        private volatile WeakReference<Object> last;
+
+        /**
+         * @param minimum The number of entries the node is created with.
+         * @return The size to create a node with.
+         */
+        int size(int minimum) {
+            int explicit = this.explicit;
+            if (explicit > 0) {
+                return Math.max(minimum, explicit);
+            }
+            WeakReference<Object> last = this.last;
+            if (last != null) {
+                this.last = null;
+                Object node = last.get();
+                if (node != null) {
+                    int size = node instanceof Map ? ((Map<?, ?>) node).size() : ((Collection<?>) node).size();
+                    int learned = this.learned;
+                    // round up, as undersizing costs a resize while oversizing only costs the unused capacity
+                    this.learned = learned == 0 ? size : (learned + size + 1) / 2;
+                }
+            }
+            return Math.max(minimum, this.learned);
+        }
+
+        /**
+         * Remembers a node created using this hint, to be sampled when the next node is created.
+         */
+        void created(Object node) {
+            if (this.explicit <= 0) {
+                this.last = new WeakReference<>(node);
+            }
+        }
+
+    }
+
+}
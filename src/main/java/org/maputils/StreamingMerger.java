@@ -0,0 +1,195 @@
+package org.maputils;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Performs {@link MapUtils#merge(Map, Map, Map)} while reading the source from a JSON token stream.
+ * Objects are merged into existing target Maps field by field, so only values which are added to the target,
+ * and individual items of keyed collections (whose identifier may appear anywhere in the item), are materialized.
+ * Materialized objects are created at their size hint when there is one, and otherwise read into a buffer first so
+ * they can be created at their exact size; arrays are always buffered. Counts into the metrics of the current operation.
+ */
+@SuppressWarnings("rawtypes,unchecked")
+class StreamingMerger {
+
+    private final MapUtils mapUtils;
+    private final Map<String, String> collectionKeys;
+    private final MetricsRecorder recorder;
+    /**
+     * Whether the paths of objects are tracked to look up their size hints.
+     */
+    private final boolean hinting;
+
+    StreamingMerger(MapUtils mapUtils, Map<String, String> collectionKeys) {
+        this.mapUtils = mapUtils;
+        this.collectionKeys = collectionKeys;
+        this.recorder = mapUtils.recorder();
+        this.hinting = mapUtils.isSizeHinting();
+    }
+
+    void merge(Map<String, Object> target, JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken() != null ? parser.currentToken() : parser.nextToken();
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object to merge but found " + token);
+        }
+        this.mergeObject(target, parser, this.hinting ? "" : null);
+    }
+
+    /**
+     * Merges the fields of the object the parser is positioned at, leaving the parser at its END_OBJECT.
+     * @param path Dot-notation path of the object, or null if size hints are not used.
+     */
+    private void mergeObject(Map<String, Object> target, JsonParser parser, String path) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (this.recorder != null) {
+                this.recorder.nodesVisited++;
+            }
+            Object targetValue = target.get(key);
+            String childPath = path == null ? null : path.isEmpty() ? key : path + "." + key;
+            if (!target.containsKey(key)) {
+                target.put(key, this.readValue(parser, childPath));
+            } else if (token == JsonToken.START_OBJECT) {
+                if (targetValue instanceof Map) {
+                    this.mergeObject((Map<String, Object>) targetValue, parser, childPath);
+                } else {
+                    target.put(key, this.readValue(parser, childPath));
+                }
+            } else if (token == JsonToken.START_ARRAY && this.mapUtils.isCollection(targetValue)) {
+                target.put(key, this.mergeArray((Collection<Object>) targetValue, parser, key));
+            } else {
+                target.put(key, this.readValue(parser, childPath));
+            }
+        }
+    }
+
+    /**
+     * Merges the array the parser is positioned at into target, leaving the parser at its END_ARRAY.
+     */
+    private Collection<Object> mergeArray(Collection<Object> target, JsonParser parser, String key) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_ARRAY) {
+            return target;
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            // a leading null leaves the target untouched, matching merge
+            parser.skipChildren();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                parser.skipChildren();
+            }
+            return target;
+        }
+        Object targetValue = target.size() > 0 ? target.iterator().next() : null;
+        if (token == JsonToken.START_OBJECT && targetValue instanceof Map
+                && this.collectionKeys != null && this.collectionKeys.containsKey(key)) {
+            Map<Object, Map> targetValues = new LinkedHashMap<>(target.size());
+            CollectionKey collectionKey = this.mapUtils.compileCollectionKey(this.collectionKeys.get(key));
+            for (Object val : target) {
+                targetValues.put(this.mapUtils.getCollectionKey((Map<String, Object>) val, collectionKey), (Map) val);
+            }
+            int sourceSize = 0;
+            do {
+                Map<String, Object> val = (Map<String, Object>) this.readValue(parser, null);
+                Object currentKey = this.mapUtils.getCollectionKey(val, collectionKey);
+                if (targetValues.containsKey(currentKey)) {
+                    this.mapUtils.mergeInternal((Map<String, Object>) targetValues.get(currentKey), val, this.collectionKeys);
+                } else {
+                    targetValues.put(currentKey, val);
+                }
+                sourceSize++;
+            } while (parser.nextToken() != JsonToken.END_ARRAY);
+            this.recordCollection(target.size() + sourceSize);
+            return this.mapUtils.mergeCollectionItems(target, targetValues.values(), key);
+        }
+        List<Object> source = new ArrayList<>();
+        do {
+            source.add(this.readValue(parser, null));
+        } while (parser.nextToken() != JsonToken.END_ARRAY);
+        this.recordCollection(target.size() + source.size());
+        return this.mapUtils.mergeUniqueCollectionItems(target, source, key);
+    }
+
+    private void recordCollection(int items) {
+        if (this.recorder != null) {
+            this.recorder.collectionsMerged++;
+            this.recorder.collectionItemsMerged += items;
+        }
+    }
+
+    /**
+     * Materializes the value the parser is positioned at using the configured suppliers.
+     * @param path Dot-notation path of the value, used to look up the size hint of an object; may be null.
+     */
+    private Object readValue(JsonParser parser, String path) throws IOException {
+        switch (parser.currentToken()) {
+            case START_OBJECT:
+                return this.readObject(parser, path);
+            case START_ARRAY:
+                List<Object> values = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    values.add(this.readValue(parser, null));
+                }
+                List<Object> list = this.mapUtils.getListSupplier().getSupplier().apply(values.size());
+                list.addAll(values);
+                this.recordCreated();
+                return list;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_EMBEDDED_OBJECT:
+                return parser.getEmbeddedObject();
+            case VALUE_NULL:
+                return null;
+            default:
+                throw new JsonParseException(parser, "Unexpected token " + parser.currentToken());
+        }
+    }
+
+    private Map<Object, Object> readObject(JsonParser parser, String path) throws IOException {
+        SizeHints.Hint hint = path != null ? this.mapUtils.sizeHint(path) : null;
+        Map<Object, Object> map;
+        if (hint != null) {
+            map = this.mapUtils.getMapSupplier().getSupplier().apply(hint.size(1));
+            hint.created(map);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String key = parser.getCurrentName();
+                parser.nextToken();
+                map.put(key, this.readValue(parser, path + "." + key));
+            }
+        } else {
+            // keys at even and values at odd positions
+            List<Object> entries = new ArrayList<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String key = parser.getCurrentName();
+                parser.nextToken();
+                entries.add(key);
+                entries.add(this.readValue(parser, path != null ? path + "." + key : null));
+            }
+            map = this.mapUtils.getMapSupplier().getSupplier().apply(entries.size() / 2);
+            for (int i = 0; i < entries.size(); i += 2) {
+                map.put(entries.get(i), entries.get(i + 1));
+            }
+        }
+        this.recordCreated();
+        return map;
+    }
+
+    private void recordCreated() {
+        if (this.recorder != null) {
+            this.recorder.nodesCreated++;
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+package org.maputils;
+
+import java.util.*;
+
+/**
+ * Wraps a value so it can be used as a hash key based on its structure.
+ * The hash only descends {@link #DEPTH} levels into nested Maps and Collections and is computed once per key,
+ * so hashing cost is bounded by the top of the tree rather than its full size; equality still compares the full values.
+ * Keys must not outlive mutations of the wrapped value.
+ */
+final class StructuralKey {
+
+    /**
+     * How many levels of nested Maps and Collections contribute to the hash beyond their size.
+     */
+    static final int DEPTH = 2;
+
+    private final Object value;
+    private final int hash;
+
+    StructuralKey(Object value) {
+        this.value = value;
+        this.hash = hash(value, DEPTH);
+    }
+
+    Object getValue() {
+        return this.value;
+    }
+
+    /**
+     * Computes a hash which is consistent with equals for Maps, Lists and Sets, ignoring values nested deeper than depth.
+     */
+    static int hash(Object value, int depth) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            int h = map.size();
+            if (depth > 0) {
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    h += Objects.hashCode(entry.getKey()) ^ hash(entry.getValue(), depth - 1);
+                }
+            }
+            return h;
+        }
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            int h = list.size();
+            if (depth > 0) {
+                for (Object item : list) {
+                    h = 31 * h + hash(item, depth - 1);
+                }
+            }
+            return h;
+        }
+        if (value instanceof Set) {
+            Set<?> set = (Set<?>) value;
+            int h = set.size();
+            if (depth > 0) {
+                for (Object item : set) {
+                    h += hash(item, depth - 1);
+                }
+            }
+            return h;
+        }
+        return value.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StructuralKey)) {
+            return false;
+        }
+        StructuralKey other = (StructuralKey) o;
+        return this.hash == other.hash && Objects.equals(this.value, other.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+}
@@ -0,0 +1,283 @@
+package org.maputils.binary;
+
+import org.maputils.MapPath;
+import org.maputils.MapUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * A read-only view of a document serialized by {@link BinaryWriter}, which reads paths directly from the buffer.
+ * Every Map and Collection starts with a table of offsets to its entries, so a path is resolved by following one
+ * offset per segment; keys of larger Maps are also indexed by hash. Only the value at the end of the path is
+ * materialized, using the suppliers of the given {@link MapUtils}. The buffer is only read using absolute
+ * positions, so instances may be shared between threads.
+ */
+@SuppressWarnings("rawtypes,unchecked")
+public final class BinaryDocument {
+
+    static final int MAGIC = 0x4D554231;
+    static final byte NULL = 0;
+    static final byte FALSE = 1;
+    static final byte TRUE = 2;
+    static final byte INT = 3;
+    static final byte LONG = 4;
+    static final byte DOUBLE = 5;
+    static final byte STRING = 6;
+    static final byte BIG_INTEGER = 7;
+    static final byte BIG_DECIMAL = 8;
+    static final byte MAP = 9;
+    static final byte LIST = 10;
+    static final byte SET = 11;
+    /**
+     * Each Map entry is stored as the hash of its key, the offset of its key and the offset of its value.
+     */
+    static final int ENTRY_SIZE = 12;
+    /**
+     * Maps with more entries than this are followed by their entries sorted by hash for binary search.
+     */
+    static final int LINEAR_SCAN = 8;
+
+    private final ByteBuffer buffer;
+    private final int base;
+    private final MapUtils mapUtils;
+
+    private BinaryDocument(ByteBuffer buffer, MapUtils mapUtils) {
+        // documents are written big-endian, whatever the order of the given buffer
+        this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        this.base = buffer.position();
+        this.mapUtils = mapUtils;
+        if (this.buffer.remaining() < 5 || this.buffer.getInt(this.base) != MAGIC) {
+            throw new IllegalArgumentException("Buffer does not contain a binary document");
+        }
+        if (this.type(4) != MAP) {
+            throw new IllegalArgumentException("Binary document does not contain a Map");
+        }
+    }
+
+    /**
+     * @param buffer Buffer positioned at the start of the document; its position and byte order are not modified.
+     * @return A view of the document, materializing values using the default suppliers.
+     */
+    public static BinaryDocument wrap(ByteBuffer buffer) {
+        return wrap(buffer, new MapUtils());
+    }
+
+    /**
+     * @param buffer Buffer positioned at the start of the document; its position and byte order are not modified.
+     * @param mapUtils Provides the suppliers used to materialize Maps and Collections.
+     * @return A view of the document.
+     */
+    public static BinaryDocument wrap(ByteBuffer buffer, MapUtils mapUtils) {
+        return new BinaryDocument(buffer, mapUtils);
+    }
+
+    /**
+     * Memory-maps a file containing a document, so that only the pages which are read are loaded.
+     * @param file The file the document was written to.
+     * @param mapUtils Provides the suppliers used to materialize Maps and Collections.
+     * @return A view of the document.
+     */
+    public static BinaryDocument map(Path file, MapUtils mapUtils) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), mapUtils);
+        }
+    }
+
+    /**
+     * Extract data from the document given a dot-notation path
+     * @param path Dot-notation path
+     * @return Optional value extracted from the document
+     */
+    public <T> Optional<T> read(String path) {
+        if (path == null || path.trim().length() == 0) {
+            return Optional.empty();
+        }
+        return this.readPath(this.mapUtils.compilePath(path));
+    }
+
+    /**
+     * Extract data from the document given a compiled path, resolving it as {@link MapUtils#readPath(Map, MapPath)} does.
+     * @param path Compiled path
+     * @return Optional value extracted from the document
+     */
+    public <T> Optional<T> readPath(MapPath path) {
+        if (path == null || path.isEmpty()) {
+            return Optional.empty();
+        }
+        int current = this.get(4, path.getKey(0));
+        for (int i = 1; i < path.size() && current >= 0; i++) {
+            byte type = this.type(current);
+            if (type == MAP) {
+                current = this.get(current, path.getKey(i));
+            } else if (type == LIST) {
+                // only allow numeric indexes to be accessible on Lists
+                int index = path.getIndex(i);
+                current = index >= 0 && index < this.count(current) ? this.offset(current + 5 + 4 * index) : -1;
+            } else if (type == SET) {
+                current = -1;
+            }
+        }
+        return current >= 0 ? Optional.ofNullable((T) this.materialize(current)) : Optional.empty();
+    }
+
+    /**
+     * @return The whole document.
+     */
+    public Map<String, Object> toMap() {
+        return (Map<String, Object>) this.materialize(4);
+    }
+
+    private byte type(int offset) {
+        return this.buffer.get(this.base + offset);
+    }
+
+    private int count(int offset) {
+        return this.buffer.getInt(this.base + offset + 1);
+    }
+
+    private int offset(int position) {
+        return this.buffer.getInt(this.base + position);
+    }
+
+    /**
+     * @return The offset of the value for the given key in the Map at the given offset, or -1 if it is missing.
+     */
+    private int get(int map, String key) {
+        int count = this.count(map);
+        int table = map + 5;
+        int hash = key != null ? key.hashCode() : 0;
+        if (count <= LINEAR_SCAN) {
+            for (int i = 0; i < count; i++) {
+                int entry = table + ENTRY_SIZE * i;
+                if (this.offset(entry) == hash && this.keyEquals(this.offset(entry + 4), key)) {
+                    return this.offset(entry + 8);
+                }
+            }
+            return -1;
+        }
+        int index = table + ENTRY_SIZE * count;
+        // find the first entry with the given hash, then compare the keys of each entry which shares it
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.offset(table + ENTRY_SIZE * this.offset(index + 4 * mid)) < hash) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < count; i++) {
+            int entry = table + ENTRY_SIZE * this.offset(index + 4 * i);
+            if (this.offset(entry) != hash) {
+                break;
+            }
+            if (this.keyEquals(this.offset(entry + 4), key)) {
+                return this.offset(entry + 8);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compares a stored key to the given key without decoding it, unless the given key contains non-ASCII characters.
+     */
+    private boolean keyEquals(int offset, String key) {
+        int length = this.offset(offset);
+        if (key == null || length < 0) {
+            return key == null && length < 0;
+        }
+        int start = this.base + offset + 4;
+        if (length == key.length()) {
+            boolean ascii = true;
+            for (int i = 0; i < length && ascii; i++) {
+                char c = key.charAt(i);
+                if (c >= 0x80) {
+                    ascii = false;
+                } else if (this.buffer.get(start + i) != c) {
+                    return false;
+                }
+            }
+            if (ascii) {
+                return true;
+            }
+        }
+        byte[] encoded = key.getBytes(StandardCharsets.UTF_8);
+        if (encoded.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (this.buffer.get(start + i) != encoded[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String string(int offset) {
+        int length = this.offset(offset);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer buffer = this.buffer.duplicate();
+        buffer.position(this.base + offset + 4);
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Object materialize(int offset) {
+        switch (this.type(offset)) {
+            case NULL:
+                return null;
+            case FALSE:
+                return false;
+            case TRUE:
+                return true;
+            case INT:
+                return this.offset(offset + 1);
+            case LONG:
+                return this.buffer.getLong(this.base + offset + 1);
+            case DOUBLE:
+                return this.buffer.getDouble(this.base + offset + 1);
+            case STRING:
+                return this.string(offset + 1);
+            case BIG_INTEGER:
+                return new BigInteger(this.string(offset + 1));
+            case BIG_DECIMAL:
+                return new BigDecimal(this.string(offset + 1));
+            case MAP: {
+                int count = this.count(offset);
+                Map<String, Object> map = (Map) this.mapUtils.getMapSupplier().getSupplier().apply(count);
+                for (int i = 0; i < count; i++) {
+                    int entry = offset + 5 + ENTRY_SIZE * i;
+                    map.put(this.string(this.offset(entry + 4)), this.materialize(this.offset(entry + 8)));
+                }
+                return map;
+            }
+            case LIST:
+            case SET: {
+                int count = this.count(offset);
+                Collection<Object> collection = this.type(offset) == SET ?
+                        this.mapUtils.getSetSupplier().getSupplier().apply(count) :
+                        this.mapUtils.getListSupplier().getSupplier().apply(count);
+                for (int i = 0; i < count; i++) {
+                    collection.add(this.materialize(this.offset(offset + 5 + 4 * i)));
+                }
+                return collection;
+            }
+            default:
+                throw new IllegalStateException("Unknown value type " + this.type(offset) + " at offset " + offset);
+        }
+    }
+
+}
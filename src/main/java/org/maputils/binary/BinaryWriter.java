@@ -0,0 +1,181 @@
+package org.maputils.binary;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.maputils.binary.BinaryDocument.*;
+
+/**
+ * Serializes trees of Maps, Lists and Sets into the format read by {@link BinaryDocument}.
+ * Supports Strings, Booleans, Integers, Longs, Doubles, BigIntegers and BigDecimals as values; Shorts and Bytes are
+ * written as Integers, Floats as Doubles and Characters as Strings. Documents are limited to 2GB.
+ */
+@SuppressWarnings("unchecked")
+public final class BinaryWriter {
+
+    private byte[] bytes = new byte[256];
+    private int size;
+
+    private BinaryWriter() {
+    }
+
+    /**
+     * @param map The Map to serialize.
+     * @return The serialized document.
+     * @throws IllegalArgumentException if the Map contains a key or value which cannot be serialized.
+     */
+    public static byte[] write(Map<String, Object> map) {
+        BinaryWriter writer = new BinaryWriter();
+        writer.putInt(MAGIC);
+        writer.writeValue(map);
+        return Arrays.copyOf(writer.bytes, writer.size);
+    }
+
+    /**
+     * @param map The Map to serialize.
+     * @param out The stream the serialized document is written to.
+     * @throws IllegalArgumentException if the Map contains a key or value which cannot be serialized.
+     */
+    public static void write(Map<String, Object> map, OutputStream out) throws IOException {
+        out.write(write(map));
+    }
+
+    private void writeValue(Object value) {
+        if (value == null) {
+            this.putByte(NULL);
+        } else if (value instanceof String || value instanceof Character) {
+            this.putByte(STRING);
+            this.writeString(value.toString());
+        } else if (value instanceof Boolean) {
+            this.putByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            this.putByte(INT);
+            this.putInt(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            this.putByte(LONG);
+            this.putLong((Long) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            this.putByte(DOUBLE);
+            this.putLong(Double.doubleToLongBits(((Number) value).doubleValue()));
+        } else if (value instanceof BigInteger) {
+            this.putByte(BIG_INTEGER);
+            this.writeString(value.toString());
+        } else if (value instanceof BigDecimal) {
+            this.putByte(BIG_DECIMAL);
+            this.writeString(value.toString());
+        } else if (value instanceof Map) {
+            this.writeMap((Map<String, Object>) value);
+        } else if (value instanceof List || value instanceof Set) {
+            this.writeCollection(value instanceof Set ? SET : LIST, (Collection<Object>) value);
+        } else {
+            throw new IllegalArgumentException("Cannot serialize value of type " + value.getClass().getName());
+        }
+    }
+
+    private void writeMap(Map<String, Object> map) {
+        int count = map.size();
+        this.putByte(MAP);
+        this.putInt(count);
+        int table = this.reserve(ENTRY_SIZE * count);
+        boolean indexed = count > LINEAR_SCAN;
+        int index = indexed ? this.reserve(4 * count) : 0;
+        long[] hashes = indexed ? new long[count] : null;
+        int i = 0;
+        for (Map.Entry<?, Object> entry : map.entrySet()) {
+            if (entry.getKey() != null && !(entry.getKey() instanceof String)) {
+                throw new IllegalArgumentException("Cannot serialize key of type " + entry.getKey().getClass().getName());
+            }
+            String key = (String) entry.getKey();
+            int hash = key != null ? key.hashCode() : 0;
+            int entryPosition = table + ENTRY_SIZE * i;
+            this.setInt(entryPosition, hash);
+            this.setInt(entryPosition + 4, this.size);
+            this.writeString(key);
+            this.setInt(entryPosition + 8, this.size);
+            this.writeValue(entry.getValue());
+            if (indexed) {
+                // sorts by hash, then by position
+                hashes[i] = ((long) hash << 32) | i;
+            }
+            i++;
+        }
+        if (indexed) {
+            Arrays.sort(hashes);
+            for (int j = 0; j < count; j++) {
+                this.setInt(index + 4 * j, (int) hashes[j]);
+            }
+        }
+    }
+
+    private void writeCollection(byte type, Collection<Object> collection) {
+        int count = collection.size();
+        this.putByte(type);
+        this.putInt(count);
+        int table = this.reserve(4 * count);
+        int i = 0;
+        for (Object value : collection) {
+            this.setInt(table + 4 * i++, this.size);
+            this.writeValue(value);
+        }
+    }
+
+    private void writeString(String value) {
+        if (value == null) {
+            this.putInt(-1);
+            return;
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        this.putInt(encoded.length);
+        this.ensureCapacity(encoded.length);
+        System.arraycopy(encoded, 0, this.bytes, this.size, encoded.length);
+        this.size += encoded.length;
+    }
+
+    /**
+     * @return The position of the reserved bytes.
+     */
+    private int reserve(int length) {
+        this.ensureCapacity(length);
+        int position = this.size;
+        this.size += length;
+        return position;
+    }
+
+    private void putByte(byte value) {
+        this.ensureCapacity(1);
+        this.bytes[this.size++] = value;
+    }
+
+    private void putInt(int value) {
+        this.ensureCapacity(4);
+        this.setInt(this.size, value);
+        this.size += 4;
+    }
+
+    private void putLong(long value) {
+        this.putInt((int) (value >>> 32));
+        this.putInt((int) value);
+    }
+
+    private void setInt(int position, int value) {
+        this.bytes[position] = (byte) (value >>> 24);
+        this.bytes[position + 1] = (byte) (value >>> 16);
+        this.bytes[position + 2] = (byte) (value >>> 8);
+        this.bytes[position + 3] = (byte) value;
+    }
+
+    private void ensureCapacity(int length) {
+        long required = (long) this.size + length;
+        if (required > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Document exceeds the maximum size of 2GB");
+        }
+        if (required > this.bytes.length) {
+            this.bytes = Arrays.copyOf(this.bytes, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, 2L * this.bytes.length)));
+        }
+    }
+
+}
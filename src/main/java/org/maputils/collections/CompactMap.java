@@ -0,0 +1,205 @@
+package org.maputils.collections;
+
+import java.util.*;
+
+/**
+ * A Map for small nodes which stores up to {@link #THRESHOLD} entries inline in a single array,
+ * looking keys up with a linear scan. Once it grows past the threshold it upgrades to a LinkedHashMap.
+ * Iterates in insertion order. Not thread-safe for concurrent writes.
+ */
+@SuppressWarnings("unchecked")
+public class CompactMap<K, V> extends AbstractMap<K, V> {
+
+    /**
+     * The largest number of entries stored inline.
+     */
+    public static final int THRESHOLD = 8;
+
+    /**
+     * Keys at even and values at odd positions; null once upgraded.
+     */
+    private Object[] table;
+    private int size;
+    private Map<K, V> delegate;
+
+    public CompactMap() {
+        this(1);
+    }
+
+    public CompactMap(int expectedSize) {
+        if (expectedSize > THRESHOLD) {
+            this.delegate = new LinkedHashMap<>(expectedSize * 4 / 3 + 1);
+        } else {
+            this.table = new Object[2 * Math.max(1, expectedSize)];
+        }
+    }
+
+    private int indexOf(Object key) {
+        Object[] table = this.table;
+        int length = 2 * this.size;
+        for (int i = 0; i < length; i += 2) {
+            Object k = table[i];
+            if (k == key || key != null && key.equals(k)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return this.delegate != null ? this.delegate.size() : this.size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.delegate != null ? this.delegate.containsKey(key) : this.indexOf(key) >= 0;
+    }
+
+    @Override
+    public V get(Object key) {
+        if (this.delegate != null) {
+            return this.delegate.get(key);
+        }
+        int i = this.indexOf(key);
+        return i >= 0 ? (V) this.table[i + 1] : null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        if (this.delegate != null) {
+            return this.delegate.put(key, value);
+        }
+        int i = this.indexOf(key);
+        if (i >= 0) {
+            V previous = (V) this.table[i + 1];
+            this.table[i + 1] = value;
+            return previous;
+        }
+        if (this.size == THRESHOLD) {
+            Map<K, V> delegate = new LinkedHashMap<>(2 * THRESHOLD * 4 / 3 + 1);
+            for (int j = 0; j < 2 * this.size; j += 2) {
+                delegate.put((K) this.table[j], (V) this.table[j + 1]);
+            }
+            delegate.put(key, value);
+            this.delegate = delegate;
+            this.table = null;
+            this.size = 0;
+            return null;
+        }
+        if (2 * this.size == this.table.length) {
+            this.table = Arrays.copyOf(this.table, Math.min(2 * THRESHOLD, 2 * this.table.length));
+        }
+        this.table[2 * this.size] = key;
+        this.table[2 * this.size + 1] = value;
+        this.size++;
+        return null;
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (this.delegate != null) {
+            return this.delegate.remove(key);
+        }
+        int i = this.indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+        V previous = (V) this.table[i + 1];
+        this.removeAt(i);
+        return previous;
+    }
+
+    private void removeAt(int i) {
+        int last = 2 * (this.size - 1);
+        System.arraycopy(this.table, i + 2, this.table, i, last - i);
+        this.table[last] = null;
+        this.table[last + 1] = null;
+        this.size--;
+    }
+
+    @Override
+    public void clear() {
+        if (this.delegate != null) {
+            this.delegate = null;
+            this.table = new Object[2];
+        } else {
+            Arrays.fill(this.table, null);
+        }
+        this.size = 0;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return delegate != null ? delegate.entrySet().iterator() : new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return CompactMap.this.size();
+            }
+
+            @Override
+            public void clear() {
+                CompactMap.this.clear();
+            }
+        };
+    }
+
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+
+        private int next;
+        private int last = -1;
+
+        @Override
+        public boolean hasNext() {
+            if (delegate != null) {
+                throw new ConcurrentModificationException();
+            }
+            return this.next < 2 * size;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            this.last = this.next;
+            this.next += 2;
+            int i = this.last;
+            return new SimpleEntry<K, V>((K) table[i], (V) table[i + 1]) {
+                @Override
+                public V setValue(V value) {
+                    // the map may have upgraded, or shifted its entries, since this entry was returned
+                    K key = this.getKey();
+                    if (delegate != null) {
+                        if (delegate.containsKey(key)) {
+                            delegate.put(key, value);
+                        }
+                    } else {
+                        int j = i < 2 * size && table[i] == key ? i : indexOf(key);
+                        if (j >= 0) {
+                            table[j + 1] = value;
+                        }
+                    }
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (this.last < 0) {
+                throw new IllegalStateException();
+            }
+            removeAt(this.last);
+            this.next = this.last;
+            this.last = -1;
+        }
+
+    }
+
+}
@@ -0,0 +1,491 @@
+package org.maputils.collections;
+
+import java.util.*;
+
+/**
+ * A Map backed by an immutable hash array mapped trie (CHAMP layout).
+ * Writes through the Map interface replace only the trie nodes along the path to the changed key, and
+ * {@link #copy()} returns an independent Map in constant time which shares all nodes with this one.
+ * Iteration order is unspecified. Not thread-safe for concurrent writes.
+ */
+@SuppressWarnings("unchecked")
+public class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+    private static final Object NOT_FOUND = new Object();
+
+    private Node root;
+    private int size;
+
+    public PersistentHashMap() {
+        this(BitmapNode.EMPTY, 0);
+    }
+
+    public PersistentHashMap(Map<? extends K, ? extends V> map) {
+        this();
+        this.putAll(map);
+    }
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @return A Map with the same entries which shares this Map's structure; later writes to either are not visible in the other.
+     */
+    public PersistentHashMap<K, V> copy() {
+        return new PersistentHashMap<>(this.root, this.size);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.root.find(key, hash(key), 0) != NOT_FOUND;
+    }
+
+    @Override
+    public V get(Object key) {
+        Object value = this.root.find(key, hash(key), 0);
+        return value == NOT_FOUND ? null : (V) value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        Change change = new Change();
+        this.root = this.root.put(key, value, hash(key), 0, change);
+        if (change.added) {
+            this.size++;
+        }
+        return (V) change.previous;
+    }
+
+    @Override
+    public V remove(Object key) {
+        Change change = new Change();
+        Node node = this.root.remove(key, hash(key), 0, change);
+        if (change.removed) {
+            this.root = node;
+            this.size--;
+        }
+        return (V) change.previous;
+    }
+
+    @Override
+    public void clear() {
+        this.root = BitmapNode.EMPTY;
+        this.size = 0;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new EntryIterator(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if (!(o instanceof Entry)) {
+                    return false;
+                }
+                Entry<?, ?> entry = (Entry<?, ?>) o;
+                Object value = root.find(entry.getKey(), hash(entry.getKey()), 0);
+                return value != NOT_FOUND && Objects.equals(value, entry.getValue());
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                if (this.contains(o)) {
+                    PersistentHashMap.this.remove(((Entry<?, ?>) o).getKey());
+                    return true;
+                }
+                return false;
+            }
+
+            @Override
+            public void clear() {
+                PersistentHashMap.this.clear();
+            }
+        };
+    }
+
+    private static int hash(Object key) {
+        int h = Objects.hashCode(key);
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Iterates the nodes which were current when iteration started; writes made meanwhile do not affect it.
+     */
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+
+        private final Deque<Node> pending = new ArrayDeque<>();
+        private Node current;
+        private int index;
+        private Entry<K, V> last;
+
+        private EntryIterator(Node root) {
+            this.pending.push(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (this.current == null || this.index >= this.current.payloadArity()) {
+                if (this.pending.isEmpty()) {
+                    return false;
+                }
+                this.current = this.pending.pop();
+                this.index = 0;
+                for (int i = 0; i < this.current.nodeArity(); i++) {
+                    this.pending.push(this.current.nodeAt(i));
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            K key = (K) this.current.keyAt(this.index);
+            V value = (V) this.current.valueAt(this.index);
+            this.index++;
+            this.last = new SimpleEntry<K, V>(key, value) {
+                @Override
+                public V setValue(V value) {
+                    PersistentHashMap.this.put(key, value);
+                    return super.setValue(value);
+                }
+            };
+            return this.last;
+        }
+
+        @Override
+        public void remove() {
+            if (this.last == null) {
+                throw new IllegalStateException();
+            }
+            PersistentHashMap.this.remove(this.last.getKey());
+            this.last = null;
+        }
+
+    }
+
+    /**
+     * Describes the effect of a write on the trie.
+     */
+    private static final class Change {
+        private boolean added;
+        private boolean removed;
+        private Object previous;
+    }
+
+    private abstract static class Node {
+
+        abstract Object find(Object key, int hash, int shift);
+
+        abstract Node put(Object key, Object value, int hash, int shift, Change change);
+
+        abstract Node remove(Object key, int hash, int shift, Change change);
+
+        abstract int payloadArity();
+
+        abstract Object keyAt(int i);
+
+        abstract Object valueAt(int i);
+
+        abstract int nodeArity();
+
+        abstract Node nodeAt(int i);
+
+    }
+
+    /**
+     * Stores entries inline at the front of its content and child nodes in reverse order at the back.
+     */
+    private static final class BitmapNode extends Node {
+
+        private static final BitmapNode EMPTY = new BitmapNode(0, 0, new Object[0]);
+
+        private final int dataMap;
+        private final int nodeMap;
+        private final Object[] content;
+
+        private BitmapNode(int dataMap, int nodeMap, Object[] content) {
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.content = content;
+        }
+
+        private static int bit(int hash, int shift) {
+            return 1 << ((hash >>> shift) & 31);
+        }
+
+        private int dataIndex(int bit) {
+            return Integer.bitCount(this.dataMap & (bit - 1));
+        }
+
+        private int nodeIndex(int bit) {
+            return Integer.bitCount(this.nodeMap & (bit - 1));
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((this.dataMap & bit) != 0) {
+                int i = 2 * this.dataIndex(bit);
+                return Objects.equals(this.content[i], key) ? this.content[i + 1] : NOT_FOUND;
+            }
+            if ((this.nodeMap & bit) != 0) {
+                return this.nodeAt(this.nodeIndex(bit)).find(key, hash, shift + 5);
+            }
+            return NOT_FOUND;
+        }
+
+        @Override
+        Node put(Object key, Object value, int hash, int shift, Change change) {
+            int bit = bit(hash, shift);
+            if ((this.dataMap & bit) != 0) {
+                int i = 2 * this.dataIndex(bit);
+                Object currentKey = this.content[i];
+                Object currentValue = this.content[i + 1];
+                if (Objects.equals(currentKey, key)) {
+                    change.previous = currentValue;
+                    if (currentValue == value) {
+                        return this;
+                    }
+                    Object[] content = this.content.clone();
+                    content[i + 1] = value;
+                    return new BitmapNode(this.dataMap, this.nodeMap, content);
+                }
+                change.added = true;
+                Node node = merge(currentKey, currentValue, PersistentHashMap.hash(currentKey), key, value, hash, shift + 5);
+                return this.migrateToNode(bit, node);
+            }
+            if ((this.nodeMap & bit) != 0) {
+                Node node = this.nodeAt(this.nodeIndex(bit));
+                Node updated = node.put(key, value, hash, shift + 5, change);
+                return updated == node ? this : this.setNode(bit, updated);
+            }
+            change.added = true;
+            int i = 2 * this.dataIndex(bit);
+            Object[] content = new Object[this.content.length + 2];
+            System.arraycopy(this.content, 0, content, 0, i);
+            content[i] = key;
+            content[i + 1] = value;
+            System.arraycopy(this.content, i, content, i + 2, this.content.length - i);
+            return new BitmapNode(this.dataMap | bit, this.nodeMap, content);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift, Change change) {
+            int bit = bit(hash, shift);
+            if ((this.dataMap & bit) != 0) {
+                int i = 2 * this.dataIndex(bit);
+                if (!Objects.equals(this.content[i], key)) {
+                    return this;
+                }
+                change.removed = true;
+                change.previous = this.content[i + 1];
+                Object[] content = new Object[this.content.length - 2];
+                System.arraycopy(this.content, 0, content, 0, i);
+                System.arraycopy(this.content, i + 2, content, i, this.content.length - i - 2);
+                return new BitmapNode(this.dataMap ^ bit, this.nodeMap, content);
+            }
+            if ((this.nodeMap & bit) != 0) {
+                Node node = this.nodeAt(this.nodeIndex(bit));
+                Node updated = node.remove(key, hash, shift + 5, change);
+                if (!change.removed) {
+                    return this;
+                }
+                if (updated.nodeArity() == 0 && updated.payloadArity() == 0) {
+                    return this.removeNode(bit);
+                }
+                if (updated.nodeArity() == 0 && updated.payloadArity() == 1) {
+                    // keep the trie compact by moving a lone entry up into this node
+                    return this.migrateToInline(bit, updated.keyAt(0), updated.valueAt(0));
+                }
+                return this.setNode(bit, updated);
+            }
+            return this;
+        }
+
+        private static Node merge(Object key0, Object value0, int hash0, Object key1, Object value1, int hash1, int shift) {
+            if (shift >= 32) {
+                return new CollisionNode(hash0, new Object[]{key0, value0, key1, value1});
+            }
+            int bit0 = bit(hash0, shift);
+            int bit1 = bit(hash1, shift);
+            if (bit0 != bit1) {
+                Object[] content = Integer.compareUnsigned(bit0, bit1) < 0 ?
+                        new Object[]{key0, value0, key1, value1} :
+                        new Object[]{key1, value1, key0, value0};
+                return new BitmapNode(bit0 | bit1, 0, content);
+            }
+            return new BitmapNode(0, bit0, new Object[]{merge(key0, value0, hash0, key1, value1, hash1, shift + 5)});
+        }
+
+        private Node setNode(int bit, Node node) {
+            Object[] content = this.content.clone();
+            content[content.length - 1 - this.nodeIndex(bit)] = node;
+            return new BitmapNode(this.dataMap, this.nodeMap, content);
+        }
+
+        private Node removeNode(int bit) {
+            int i = this.content.length - 1 - this.nodeIndex(bit);
+            Object[] content = new Object[this.content.length - 1];
+            System.arraycopy(this.content, 0, content, 0, i);
+            System.arraycopy(this.content, i + 1, content, i, this.content.length - i - 1);
+            return new BitmapNode(this.dataMap, this.nodeMap ^ bit, content);
+        }
+
+        private Node migrateToNode(int bit, Node node) {
+            int oldIndex = 2 * this.dataIndex(bit);
+            int newIndex = this.content.length - 2 - this.nodeIndex(bit);
+            Object[] content = new Object[this.content.length - 1];
+            System.arraycopy(this.content, 0, content, 0, oldIndex);
+            System.arraycopy(this.content, oldIndex + 2, content, oldIndex, newIndex - oldIndex);
+            content[newIndex] = node;
+            System.arraycopy(this.content, newIndex + 2, content, newIndex + 1, this.content.length - newIndex - 2);
+            return new BitmapNode(this.dataMap ^ bit, this.nodeMap | bit, content);
+        }
+
+        private Node migrateToInline(int bit, Object key, Object value) {
+            int oldIndex = this.content.length - 1 - this.nodeIndex(bit);
+            int newIndex = 2 * this.dataIndex(bit);
+            Object[] content = new Object[this.content.length + 1];
+            System.arraycopy(this.content, 0, content, 0, newIndex);
+            content[newIndex] = key;
+            content[newIndex + 1] = value;
+            System.arraycopy(this.content, newIndex, content, newIndex + 2, oldIndex - newIndex);
+            System.arraycopy(this.content, oldIndex + 1, content, oldIndex + 2, this.content.length - oldIndex - 1);
+            return new BitmapNode(this.dataMap | bit, this.nodeMap ^ bit, content);
+        }
+
+        @Override
+        int payloadArity() {
+            return Integer.bitCount(this.dataMap);
+        }
+
+        @Override
+        Object keyAt(int i) {
+            return this.content[2 * i];
+        }
+
+        @Override
+        Object valueAt(int i) {
+            return this.content[2 * i + 1];
+        }
+
+        @Override
+        int nodeArity() {
+            return Integer.bitCount(this.nodeMap);
+        }
+
+        @Override
+        Node nodeAt(int i) {
+            return (Node) this.content[this.content.length - 1 - i];
+        }
+
+    }
+
+    /**
+     * Stores entries whose keys share the same full hash.
+     */
+    private static final class CollisionNode extends Node {
+
+        private final int hash;
+        private final Object[] content;
+
+        private CollisionNode(int hash, Object[] content) {
+            this.hash = hash;
+            this.content = content;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < this.content.length; i += 2) {
+                if (Objects.equals(this.content[i], key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            int i = this.hash == hash ? this.indexOf(key) : -1;
+            return i < 0 ? NOT_FOUND : this.content[i + 1];
+        }
+
+        @Override
+        Node put(Object key, Object value, int hash, int shift, Change change) {
+            int i = this.indexOf(key);
+            if (i >= 0) {
+                change.previous = this.content[i + 1];
+                if (this.content[i + 1] == value) {
+                    return this;
+                }
+                Object[] content = this.content.clone();
+                content[i + 1] = value;
+                return new CollisionNode(this.hash, content);
+            }
+            change.added = true;
+            Object[] content = Arrays.copyOf(this.content, this.content.length + 2);
+            content[this.content.length] = key;
+            content[this.content.length + 1] = value;
+            return new CollisionNode(this.hash, content);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift, Change change) {
+            int i = this.hash == hash ? this.indexOf(key) : -1;
+            if (i < 0) {
+                return this;
+            }
+            change.removed = true;
+            change.previous = this.content[i + 1];
+            Object[] content = new Object[this.content.length - 2];
+            System.arraycopy(this.content, 0, content, 0, i);
+            System.arraycopy(this.content, i + 2, content, i, this.content.length - i - 2);
+            return new CollisionNode(this.hash, content);
+        }
+
+        @Override
+        int payloadArity() {
+            return this.content.length / 2;
+        }
+
+        @Override
+        Object keyAt(int i) {
+            return this.content[2 * i];
+        }
+
+        @Override
+        Object valueAt(int i) {
+            return this.content[2 * i + 1];
+        }
+
+        @Override
+        int nodeArity() {
+            return 0;
+        }
+
+        @Override
+        Node nodeAt(int i) {
+            throw new IndexOutOfBoundsException();
+        }
+
+    }
+
+}
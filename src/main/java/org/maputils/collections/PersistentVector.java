@@ -0,0 +1,205 @@
+package org.maputils.collections;
+
+import java.util.*;
+
+/**
+ * A List backed by an immutable 32-way bit-partitioned trie with a tail buffer.
+ * Appends and {@link #set(int, Object)} replace only the trie nodes along the path to the changed index, and
+ * {@link #copy()} returns an independent List in constant time which shares all nodes with this one.
+ * Inserting or removing anywhere but the end rebuilds the trie. Not thread-safe for concurrent writes.
+ */
+@SuppressWarnings("unchecked")
+public class PersistentVector<E> extends AbstractList<E> implements RandomAccess {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final Object[] EMPTY_NODE = new Object[WIDTH];
+    private static final Object[] EMPTY_TAIL = new Object[0];
+
+    private int size;
+    private int shift;
+    private Object[] root;
+    private Object[] tail;
+    /**
+     * Whether the tail is referenced only by this List and can be written in place.
+     */
+    private boolean tailOwned;
+
+    public PersistentVector() {
+        this.clear();
+    }
+
+    public PersistentVector(Collection<? extends E> values) {
+        this();
+        this.addAll(values);
+    }
+
+    private PersistentVector(int size, int shift, Object[] root, Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    /**
+     * @return A List with the same items which shares this List's structure; later writes to either are not visible in the other.
+     */
+    public PersistentVector<E> copy() {
+        this.tailOwned = false;
+        return new PersistentVector<>(this.size, this.shift, this.root, this.tail);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public E get(int index) {
+        return (E) this.leafFor(this.checkIndex(index))[index & MASK];
+    }
+
+    @Override
+    public E set(int index, E value) {
+        this.checkIndex(index);
+        int tailOffset = this.tailOffset();
+        if (index >= tailOffset) {
+            this.ownTail();
+            Object previous = this.tail[index - tailOffset];
+            this.tail[index - tailOffset] = value;
+            return (E) previous;
+        }
+        E previous = this.get(index);
+        this.root = this.set(this.shift, this.root, index, value);
+        return previous;
+    }
+
+    @Override
+    public boolean add(E value) {
+        int tailSize = this.size - this.tailOffset();
+        if (tailSize < WIDTH) {
+            this.ownTail();
+            this.tail[tailSize] = value;
+        } else {
+            // the tail is full; move it into the trie, growing a level when the root is full
+            if ((this.size >>> BITS) > (1 << this.shift)) {
+                Object[] root = new Object[WIDTH];
+                root[0] = this.root;
+                root[1] = newPath(this.shift, this.tail);
+                this.root = root;
+                this.shift += BITS;
+            } else {
+                this.root = this.pushTail(this.shift, this.root, this.tail);
+            }
+            this.tail = new Object[WIDTH];
+            this.tail[0] = value;
+            this.tailOwned = true;
+        }
+        this.size++;
+        this.modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, E value) {
+        if (index == this.size) {
+            this.add(value);
+            return;
+        }
+        if (index < 0 || index > this.size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+        List<Object> values = new ArrayList<>(this);
+        values.add(index, value);
+        this.rebuild(values);
+    }
+
+    @Override
+    public E remove(int index) {
+        this.checkIndex(index);
+        List<Object> values = new ArrayList<>(this);
+        Object previous = values.remove(index);
+        this.rebuild(values);
+        return (E) previous;
+    }
+
+    @Override
+    public void clear() {
+        this.size = 0;
+        this.shift = BITS;
+        this.root = EMPTY_NODE;
+        this.tail = EMPTY_TAIL;
+        this.tailOwned = false;
+        this.modCount++;
+    }
+
+    private void rebuild(List<Object> values) {
+        this.clear();
+        for (Object value : values) {
+            this.add((E) value);
+        }
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+        return index;
+    }
+
+    private int tailOffset() {
+        return this.size < WIDTH ? 0 : ((this.size - 1) >>> BITS) << BITS;
+    }
+
+    private void ownTail() {
+        if (!this.tailOwned) {
+            this.tail = Arrays.copyOf(this.tail, WIDTH);
+            this.tailOwned = true;
+        }
+    }
+
+    private Object[] leafFor(int index) {
+        if (index >= this.tailOffset()) {
+            return this.tail;
+        }
+        Object[] node = this.root;
+        for (int level = this.shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+
+    private Object[] set(int level, Object[] node, int index, Object value) {
+        Object[] copy = node.clone();
+        if (level == 0) {
+            copy[index & MASK] = value;
+        } else {
+            int i = (index >>> level) & MASK;
+            copy[i] = this.set(level - BITS, (Object[]) node[i], index, value);
+        }
+        return copy;
+    }
+
+    private Object[] pushTail(int level, Object[] parent, Object[] tail) {
+        int i = ((this.size - 1) >>> level) & MASK;
+        Object[] copy = parent.clone();
+        if (level == BITS) {
+            copy[i] = tail;
+        } else {
+            Object[] child = (Object[]) parent[i];
+            copy[i] = child != null ? this.pushTail(level - BITS, child, tail) : newPath(level - BITS, tail);
+        }
+        return copy;
+    }
+
+    private static Object[] newPath(int level, Object[] node) {
+        if (level == 0) {
+            return node;
+        }
+        Object[] path = new Object[WIDTH];
+        path[0] = newPath(level - BITS, node);
+        return path;
+    }
+
+}
@@ -0,0 +1,364 @@
+package org.maputils.collections;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A Map for record-like documents which stores only an array of values and a reference to a shared {@link Shape}.
+ * Shapes map keys to value slots and are interned through a global transition tree, so every ShapeMap which was
+ * given the same keys in the same order shares a single Shape. The tree holds its keys strongly and is never pruned,
+ * so it stops growing once it holds a fixed number of shapes. Maps whose keys lead outside it, and maps which grow
+ * past {@link #MAX_SLOTS} keys, switch to a LinkedHashMap. Iterates in insertion order. Not thread-safe for concurrent
+ * writes.
+ */
+@SuppressWarnings("unchecked")
+public class ShapeMap<K, V> extends AbstractMap<K, V> {
+
+    /**
+     * The largest number of keys stored using a shared Shape.
+     */
+    public static final int MAX_SLOTS = 32;
+
+    private Shape shape;
+    private Object[] values;
+    private Map<K, V> delegate;
+
+    public ShapeMap() {
+        this(4);
+    }
+
+    public ShapeMap(int expectedSize) {
+        this(expectedSize, Shape.ROOT);
+    }
+
+    /**
+     * @param root The root of the transition tree to intern shapes in.
+     */
+    ShapeMap(int expectedSize, Shape root) {
+        this.shape = root;
+        if (expectedSize > MAX_SLOTS) {
+            this.delegate = new LinkedHashMap<>(expectedSize * 4 / 3 + 1);
+        } else {
+            this.values = new Object[Math.max(1, expectedSize)];
+        }
+    }
+
+    Shape getShape() {
+        return this.shape;
+    }
+
+    @Override
+    public int size() {
+        return this.delegate != null ? this.delegate.size() : this.shape.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.delegate != null ? this.delegate.containsKey(key) : this.shape.indexOf(key) >= 0;
+    }
+
+    @Override
+    public V get(Object key) {
+        if (this.delegate != null) {
+            return this.delegate.get(key);
+        }
+        int i = this.shape.indexOf(key);
+        return i >= 0 ? (V) this.values[i] : null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        if (this.delegate != null) {
+            return this.delegate.put(key, value);
+        }
+        int i = this.shape.indexOf(key);
+        if (i >= 0) {
+            V previous = (V) this.values[i];
+            this.values[i] = value;
+            return previous;
+        }
+        int size = this.shape.size();
+        Shape shape = size < MAX_SLOTS ? this.shape.with(key) : null;
+        if (shape == null) {
+            this.toDelegate(-1).put(key, value);
+            return null;
+        }
+        if (size == this.values.length) {
+            this.values = Arrays.copyOf(this.values, Math.min(MAX_SLOTS, 2 * this.values.length));
+        }
+        this.shape = shape;
+        this.values[size] = value;
+        return null;
+    }
+
+    /**
+     * Moves the entries into a LinkedHashMap, for maps which outgrow the shared shapes.
+     * @param skip The slot of an entry to leave out, or -1.
+     * @return The new delegate.
+     */
+    private Map<K, V> toDelegate(int skip) {
+        int size = this.shape.size();
+        Map<K, V> delegate = new LinkedHashMap<>(2 * Math.max(size, 4) * 4 / 3 + 1);
+        for (int j = 0; j < size; j++) {
+            if (j != skip) {
+                delegate.put((K) this.shape.keyAt(j), (V) this.values[j]);
+            }
+        }
+        this.delegate = delegate;
+        this.shape = this.shape.root;
+        this.values = null;
+        return delegate;
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (this.delegate != null) {
+            return this.delegate.remove(key);
+        }
+        int i = this.shape.indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+        V previous = (V) this.values[i];
+        this.removeAt(i);
+        return previous;
+    }
+
+    private void removeAt(int i) {
+        // rebuild the shape from the remaining keys so maps which end up with the same keys still share it; the keys
+        // before i lead to a shape which is already interned
+        int size = this.shape.size();
+        Shape shape = this.shape.prefix(i);
+        for (int j = i + 1; j < size && shape != null; j++) {
+            shape = shape.with(this.shape.keyAt(j));
+        }
+        if (shape == null) {
+            this.toDelegate(i);
+            return;
+        }
+        System.arraycopy(this.values, i + 1, this.values, i, size - i - 1);
+        this.values[size - 1] = null;
+        this.shape = shape;
+    }
+
+    @Override
+    public void clear() {
+        this.delegate = null;
+        this.shape = this.shape.root;
+        this.values = new Object[4];
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return delegate != null ? delegate.entrySet().iterator() : new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return ShapeMap.this.size();
+            }
+
+            @Override
+            public void clear() {
+                ShapeMap.this.clear();
+            }
+        };
+    }
+
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+
+        private int next;
+        private int last = -1;
+        /**
+         * Iterates over the remaining entries once a removal through this iterator has switched the map to its delegate.
+         */
+        private Iterator<Entry<K, V>> rest;
+
+        @Override
+        public boolean hasNext() {
+            if (this.rest != null) {
+                return this.rest.hasNext();
+            }
+            if (delegate != null) {
+                throw new ConcurrentModificationException();
+            }
+            return this.next < shape.size();
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (this.rest != null) {
+                return this.rest.next();
+            }
+            int i = this.next++;
+            this.last = i;
+            return new SimpleEntry<K, V>((K) shape.keyAt(i), (V) values[i]) {
+                @Override
+                public V setValue(V value) {
+                    // the map may have switched to its delegate, or shifted its entries, since this entry was returned
+                    K key = this.getKey();
+                    if (delegate != null) {
+                        if (delegate.containsKey(key)) {
+                            delegate.put(key, value);
+                        }
+                    } else {
+                        int j = i < shape.size() && shape.keyAt(i) == key ? i : shape.indexOf(key);
+                        if (j >= 0) {
+                            values[j] = value;
+                        }
+                    }
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (this.rest != null) {
+                this.rest.remove();
+                return;
+            }
+            if (this.last < 0) {
+                throw new IllegalStateException();
+            }
+            removeAt(this.last);
+            if (delegate != null) {
+                // the delegate keeps the same order, so skip the entries already returned
+                this.rest = delegate.entrySet().iterator();
+                for (int j = 0; j < this.last; j++) {
+                    this.rest.next();
+                }
+            }
+            this.next = this.last;
+            this.last = -1;
+        }
+
+    }
+
+    /**
+     * An immutable, interned layout of keys to value slots.
+     */
+    static final class Shape {
+
+        static final Shape ROOT = newTree();
+
+        /**
+         * Limits how many distinct keys may follow a single shape, so maps keyed by data rather than by field names
+         * leave the transition tree early rather than filling it.
+         */
+        private static final int MAX_TRANSITIONS = 64;
+        /**
+         * Limits how many shapes are interned in each transition tree.
+         */
+        private static final int MAX_SHAPES = 4096;
+        /**
+         * Shapes with more keys than this index them in a hash table rather than scanning.
+         */
+        private static final int LINEAR_SCAN = 8;
+        private static final Object NULL_KEY = new Object();
+
+        private final Object[] keys;
+        private final Map<Object, Integer> index;
+        private final Map<Object, Shape> transitions = new ConcurrentHashMap<>();
+        private final Shape root;
+        /**
+         * The shape with this shape's keys but the last, or null for a root.
+         */
+        private final Shape parent;
+        /**
+         * The number of shapes interned in the tree, or null if this shape is not a root.
+         */
+        private final AtomicInteger interned;
+
+        private Shape(Object[] keys, Shape parent) {
+            this.keys = keys;
+            this.parent = parent;
+            this.root = parent != null ? parent.root : this;
+            this.interned = parent != null ? null : new AtomicInteger();
+            if (keys.length > LINEAR_SCAN) {
+                this.index = new HashMap<>(keys.length * 4 / 3 + 1);
+                for (int i = 0; i < keys.length; i++) {
+                    this.index.put(keys[i], i);
+                }
+            } else {
+                this.index = null;
+            }
+        }
+
+        /**
+         * @return The root of a new transition tree, separate from {@link #ROOT}.
+         */
+        static Shape newTree() {
+            return new Shape(new Object[0], null);
+        }
+
+        int size() {
+            return this.keys.length;
+        }
+
+        Object keyAt(int i) {
+            return this.keys[i];
+        }
+
+        int indexOf(Object key) {
+            if (this.index != null) {
+                Integer i = this.index.get(key);
+                return i != null ? i : -1;
+            }
+            Object[] keys = this.keys;
+            for (int i = 0; i < keys.length; i++) {
+                Object k = keys[i];
+                if (k == key || key != null && key.equals(k)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return The shared shape with the given key appended, or null if the transition tree is full.
+         */
+        Shape with(Object key) {
+            Object transition = key != null ? key : NULL_KEY;
+            Shape shape = this.transitions.get(transition);
+            if (shape == null && this.transitions.size() < MAX_TRANSITIONS) {
+                shape = this.transitions.computeIfAbsent(transition, k -> {
+                    if (!this.reserve()) {
+                        return null;
+                    }
+                    Object[] keys = Arrays.copyOf(this.keys, this.keys.length + 1);
+                    keys[this.keys.length] = key;
+                    return new Shape(keys, this);
+                });
+            }
+            return shape;
+        }
+
+        /**
+         * @return The shape with the first n of this shape's keys.
+         */
+        Shape prefix(int n) {
+            Shape shape = this;
+            for (int i = this.keys.length; i > n; i--) {
+                shape = shape.parent;
+            }
+            return shape;
+        }
+
+        /**
+         * @return Whether another shape may be interned, counting it if so.
+         */
+        private boolean reserve() {
+            return this.root.interned.getAndUpdate(n -> n < MAX_SHAPES ? n + 1 : n) < MAX_SHAPES;
+        }
+
+    }
+
+}
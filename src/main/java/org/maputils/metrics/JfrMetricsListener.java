@@ -0,0 +1,26 @@
+package org.maputils.metrics;
+
+/**
+ * Commits an {@link OperationEvent} to JDK Flight Recorder for each operation while the event is enabled in a recording.
+ */
+public class JfrMetricsListener implements MetricsListener {
+
+    @Override
+    public void onOperation(OperationMetrics metrics) {
+        OperationEvent event = new OperationEvent();
+        if (event.isEnabled()) {
+            event.operation = metrics.getOperation().name();
+            event.path = metrics.getPath();
+            event.elapsed = metrics.getDurationNanos();
+            event.pathsCompiled = metrics.getPathsCompiled();
+            event.nodesVisited = metrics.getNodesVisited();
+            event.collectionsMerged = metrics.getCollectionsMerged();
+            event.collectionItemsMerged = metrics.getCollectionItemsMerged();
+            event.collectionKeyLookups = metrics.getCollectionKeyLookups();
+            event.nodesCreated = metrics.getNodesCreated();
+            event.allocatedBytes = metrics.getAllocatedBytes();
+            event.commit();
+        }
+    }
+
+}
@@ -0,0 +1,13 @@
+package org.maputils.metrics;
+
+/**
+ * Receives metrics for each read, merge, assign, addNode and cloneDeep call made through a MapUtils instance.
+ * Calls made internally by another operation are included in the metrics of that operation rather than reported separately.
+ * Invoked on the thread which made the call, so implementations should return quickly.
+ */
+@FunctionalInterface
+public interface MetricsListener {
+
+    void onOperation(OperationMetrics metrics);
+
+}
@@ -0,0 +1,12 @@
+package org.maputils.metrics;
+
+/**
+ * The MapUtils operations which report metrics.
+ */
+public enum Operation {
+    READ,
+    MERGE,
+    ASSIGN,
+    ADD_NODE,
+    CLONE
+}
@@ -0,0 +1,46 @@
+package org.maputils.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder event committed by {@link JfrMetricsListener} for each MapUtils operation.
+ */
+@Name("org.maputils.Operation")
+@Label("MapUtils Operation")
+@Category("MapUtils")
+@Description("A read, merge, assign or addNode call made through MapUtils")
+public class OperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Path")
+    String path;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+    @Label("Paths Compiled")
+    long pathsCompiled;
+
+    @Label("Nodes Visited")
+    long nodesVisited;
+
+    @Label("Collections Merged")
+    long collectionsMerged;
+
+    @Label("Collection Items Merged")
+    long collectionItemsMerged;
+
+    @Label("Collection Key Lookups")
+    long collectionKeyLookups;
+
+    @Label("Nodes Created")
+    long nodesCreated;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+
+}
@@ -0,0 +1,107 @@
+package org.maputils.metrics;
+
+/**
+ * Metrics collected for a single MapUtils operation.
+ */
+public final class OperationMetrics {
+
+    private final Operation operation;
+    private final String path;
+    private final long durationNanos;
+    private final long pathsCompiled;
+    private final long nodesVisited;
+    private final long collectionsMerged;
+    private final long collectionItemsMerged;
+    private final long collectionKeyLookups;
+    private final long nodesCreated;
+    private final long allocatedBytes;
+
+    public OperationMetrics(Operation operation, String path, long durationNanos, long pathsCompiled, long nodesVisited,
+                            long collectionsMerged, long collectionItemsMerged, long collectionKeyLookups, long nodesCreated, long allocatedBytes) {
+        this.operation = operation;
+        this.path = path;
+        this.durationNanos = durationNanos;
+        this.pathsCompiled = pathsCompiled;
+        this.nodesVisited = nodesVisited;
+        this.collectionsMerged = collectionsMerged;
+        this.collectionItemsMerged = collectionItemsMerged;
+        this.collectionKeyLookups = collectionKeyLookups;
+        this.nodesCreated = nodesCreated;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return The path read or added, or null for operations which are not given a single path.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return The number of dot-notation paths parsed because they were not in the path cache.
+     */
+    public long getPathsCompiled() {
+        return pathsCompiled;
+    }
+
+    /**
+     * @return The number of path segments resolved and source entries merged.
+     */
+    public long getNodesVisited() {
+        return nodesVisited;
+    }
+
+    public long getCollectionsMerged() {
+        return collectionsMerged;
+    }
+
+    /**
+     * @return The combined size of the target and source collections which were merged.
+     */
+    public long getCollectionItemsMerged() {
+        return collectionItemsMerged;
+    }
+
+    public long getCollectionKeyLookups() {
+        return collectionKeyLookups;
+    }
+
+    /**
+     * @return The number of Maps and Collections created using the configured suppliers.
+     */
+    public long getNodesCreated() {
+        return nodesCreated;
+    }
+
+    /**
+     * @return The bytes allocated by the calling thread during the operation, or -1 if the JVM does not report them.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "OperationMetrics{" +
+                "operation=" + operation +
+                ", path=" + path +
+                ", durationNanos=" + durationNanos +
+                ", pathsCompiled=" + pathsCompiled +
+                ", nodesVisited=" + nodesVisited +
+                ", collectionsMerged=" + collectionsMerged +
+                ", collectionItemsMerged=" + collectionItemsMerged +
+                ", collectionKeyLookups=" + collectionKeyLookups +
+                ", nodesCreated=" + nodesCreated +
+                ", allocatedBytes=" + allocatedBytes +
+                '}';
+    }
+
+}
@@ -0,0 +1,62 @@
+package org.maputils.metrics;
+
+/**
+ * Metrics collected for a single stage of a MapPipeline across all of its runs.
+ */
+public final class StageMetrics {
+
+    private final String name;
+    private final long processed;
+    private final long dropped;
+    private final long durationNanos;
+
+    public StageMetrics(String name, long processed, long dropped, long durationNanos) {
+        this.name = name;
+        this.processed = processed;
+        this.dropped = dropped;
+        this.durationNanos = durationNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The number of documents passed to the stage.
+     */
+    public long getProcessed() {
+        return processed;
+    }
+
+    /**
+     * @return The number of documents the stage removed from the pipeline.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return The time spent in the stage, summed across all threads.
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return The number of documents processed per second of time spent in the stage on a single thread, or 0 if none were processed.
+     */
+    public double getThroughput() {
+        return durationNanos > 0 ? processed * 1_000_000_000d / durationNanos : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "StageMetrics{" +
+                "name=" + name +
+                ", processed=" + processed +
+                ", dropped=" + dropped +
+                ", durationNanos=" + durationNanos +
+                '}';
+    }
+
+}
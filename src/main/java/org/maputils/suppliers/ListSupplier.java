@@ -1,15 +1,21 @@
 package org.maputils.suppliers;
 
+import org.maputils.collections.PersistentVector;
+
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Function;
 
+/**
+ * Creates the Lists added by MapUtils, given the number of items they are expected to hold.
+ */
 public enum ListSupplier {
     ARRAY_LIST(ArrayList::new),
     LINKED_LIST(size -> new LinkedList<>()),
-    COPY_ON_WRITE_ARRAY_LIST(size -> new CopyOnWriteArrayList<>());
+    COPY_ON_WRITE_ARRAY_LIST(size -> new CopyOnWriteArrayList<>()),
+    PERSISTENT_VECTOR(size -> new PersistentVector<>());
 
     private final Function<Integer, List<Object>> supplier;
 
@@ -1,16 +1,26 @@
 package org.maputils.suppliers;
 
+import org.maputils.collections.CompactMap;
+import org.maputils.collections.PersistentHashMap;
+import org.maputils.collections.ShapeMap;
+
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
+/**
+ * Creates the Maps added by MapUtils, given the number of entries they are expected to hold.
+ */
 public enum MapSupplier {
-    HASH_MAP(HashMap::new),
-    LINKED_HASH_MAP(LinkedHashMap::new),
+    HASH_MAP(size -> new HashMap<>(size * 4 / 3 + 1)),
+    LINKED_HASH_MAP(size -> new LinkedHashMap<>(size * 4 / 3 + 1)),
     TREE_MAP(size -> new TreeMap<>()),
-    WEAK_HASH_MAP(WeakHashMap::new),
+    WEAK_HASH_MAP(size -> new WeakHashMap<>(size * 4 / 3 + 1)),
     IDENTITY_HASH_MAP(IdentityHashMap::new),
-    CONCURRENT_HASH_MAP(ConcurrentHashMap::new);
+    CONCURRENT_HASH_MAP(ConcurrentHashMap::new),
+    PERSISTENT_HASH_MAP(size -> new PersistentHashMap<>()),
+    COMPACT(CompactMap::new),
+    SHAPED(ShapeMap::new);
 
     private final Function<Integer, Map<Object, Object>> supplier;
 
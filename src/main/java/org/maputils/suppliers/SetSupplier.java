@@ -6,9 +6,12 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.function.Function;
 
+/**
+ * Creates the Sets added by MapUtils, given the number of items they are expected to hold.
+ */
 public enum SetSupplier {
-    HASH_SET(HashSet::new),
-    LINKED_HASH_SET(LinkedHashSet::new),
+    HASH_SET(size -> new HashSet<>(size * 4 / 3 + 1)),
+    LINKED_HASH_SET(size -> new LinkedHashSet<>(size * 4 / 3 + 1)),
     TREE_SET(size -> new TreeSet<>());
 
     private final Function<Integer, Set<Object>> supplier;
@@ -1,15 +1,30 @@
 package org.maputils;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.maputils.collections.CompactMap;
+import org.maputils.collections.PersistentHashMap;
+import org.maputils.collections.PersistentVector;
+import org.maputils.collections.ShapeMap;
+import org.maputils.metrics.Operation;
+import org.maputils.metrics.OperationMetrics;
+import org.maputils.metrics.StageMetrics;
+import org.maputils.suppliers.ListSupplier;
+import org.maputils.suppliers.MapSupplier;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 @SuppressWarnings("unchecked")
 public class MapUtilsTest {
@@ -67,6 +82,93 @@ public class MapUtilsTest {
         Assertions.assertEquals("Hiking", hobby.orElse(null));
     }
 
+    @Test
+    public void testReadCompiledPath() {
+        MapPath path = MapPath.compile("people.0.hobbies.1");
+        Assertions.assertEquals(4, path.size());
+        Assertions.assertFalse(path.isIndex(0));
+        Assertions.assertEquals(0, path.getIndex(1));
+        Optional<String> hobby = this.mapUtils.readPath(this.map1, path);
+        Assertions.assertEquals("Painting", hobby.orElse(null));
+        Assertions.assertFalse(this.mapUtils.readPath(this.map1, MapPath.compile("people.first")).isPresent());
+        Assertions.assertFalse(this.mapUtils.readPath(this.map1, MapPath.compile("people.0.missing")).isPresent());
+        Assertions.assertFalse(this.mapUtils.readPath(this.map1, MapPath.compile("  ")).isPresent());
+    }
+
+    @Test
+    public void testReadAll() {
+        List<String> paths = Arrays.asList(
+                "people.0.firstName",
+                "people.0.lastName",
+                "people.0.hobbies.0",
+                "people.1.identifiers.0.value",
+                "people.1.missing",
+                "people.first",
+                "people"
+        );
+        Map<String, Object> result = this.mapUtils.readAll(this.map1, PathSet.compile(paths));
+        Assertions.assertEquals(5, result.size());
+        for (String path : paths) {
+            Assertions.assertEquals(this.mapUtils.read(this.map1, path).orElse(null), result.get(path));
+        }
+        Assertions.assertTrue(this.mapUtils.readAll(null, paths).isEmpty());
+    }
+
+    @Test
+    public void testReadStream() {
+        Assertions.assertEquals(Arrays.asList(1, 2), this.mapUtils.readStream(this.map1, "people.*.id").collect(Collectors.toList()));
+        Assertions.assertEquals(Arrays.asList("Hiking", "Painting", "Tennis", "Gaming"),
+                this.mapUtils.readStream(this.map1, "people.*.hobbies.*").collect(Collectors.toList()));
+        Assertions.assertEquals(Arrays.asList("Smith"), this.mapUtils.readStream(this.map1, "people[1:].lastName").collect(Collectors.toList()));
+        Assertions.assertEquals(Arrays.asList("Painting", "Gaming"),
+                this.mapUtils.readStream(this.map1, "people.*.hobbies.[-1:]").collect(Collectors.toList()));
+        Assertions.assertEquals(Arrays.asList("SSN", "SSN"),
+                this.mapUtils.readStream(this.map1, "people.[0:2].identifiers.0.type").collect(Collectors.toList()));
+        Assertions.assertEquals(Arrays.asList(1), this.mapUtils.readStream(this.map1, "people.0.id").collect(Collectors.toList()));
+        Assertions.assertEquals(0, this.mapUtils.readStream(this.map1, "people.*.missing").count());
+        Assertions.assertEquals(0, this.mapUtils.readStream(this.map1, "people.5.id").count());
+        Assertions.assertEquals(0, this.mapUtils.readStream(null, "people.*").count());
+    }
+
+    @Test
+    public void testReadStreamShortCircuits() {
+        List<Object> items = new AbstractList<Object>() {
+            @Override
+            public Object get(int index) {
+                if (index > 0) {
+                    Assertions.fail("read past the first match");
+                }
+                return Collections.singletonMap("id", index);
+            }
+
+            @Override
+            public int size() {
+                return Integer.MAX_VALUE;
+            }
+        };
+        Map<String, Object> map = new HashMap<>();
+        map.put("items", items);
+        Assertions.assertEquals(0, this.mapUtils.readStream(map, "items.*.id").findFirst().orElse(null));
+        Assertions.assertEquals(Arrays.asList(0), this.mapUtils.readPattern(map, PathPattern.compile("items[0:100].id")).limit(1).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testPathCache() {
+        Assertions.assertSame(this.mapUtils.compilePath("people.0.id"), this.mapUtils.compilePath("people.0.id"));
+        this.mapUtils.setPathCacheSize(0);
+        Assertions.assertNotSame(this.mapUtils.compilePath("people.0.id"), this.mapUtils.compilePath("people.0.id"));
+        Assertions.assertEquals(1, this.mapUtils.read(this.map1, "people.0.id").orElse(null));
+    }
+
+    @Test
+    public void testAddNode() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        Map node = this.mapUtils.addNode(result, "person.address");
+        node.put("city", "Springfield");
+        Assertions.assertSame(node, this.mapUtils.addNodePath(result, MapPath.compile("person.address")));
+        Assertions.assertEquals("Springfield", this.mapUtils.read(result, "person.address.city").orElse(null));
+    }
+
     @Test
     public void testMergeWithCollectionKeys() {
         Map<String, String> collectionKeys = new HashMap<String, String>() {{
@@ -87,6 +189,498 @@ public class MapUtilsTest {
         this.testMergeWithCollectionKeysAssertions();
     }
 
+    @Test
+    public void testMergeWithAmbiguousCompositeCollectionKeys() {
+        Map<String, String> collectionKeys = new HashMap<String, String>() {{
+            put("people", "firstName,lastName");
+        }};
+        Map<String, Object> target = new LinkedHashMap<>();
+        target.put("people", new ArrayList<>(Collections.singletonList(new LinkedHashMap<String, Object>() {{
+            put("firstName", "a");
+            put("lastName", "bc");
+        }})));
+        Map<String, Object> source = new LinkedHashMap<>();
+        source.put("people", new ArrayList<>(Arrays.asList(
+                new LinkedHashMap<String, Object>() {{
+                    put("firstName", "ab");
+                    put("lastName", "c");
+                }},
+                new LinkedHashMap<String, Object>() {{
+                    put("firstName", "a");
+                    put("lastName", "bc");
+                    put("age", 30);
+                }}
+        )));
+        this.mapUtils.merge(target, source, collectionKeys);
+        Assertions.assertEquals(2, ((List<Object>) target.get("people")).size());
+        Assertions.assertEquals(30, this.mapUtils.read(target, "people.0.age").orElse(null));
+        Assertions.assertEquals("ab", this.mapUtils.read(target, "people.1.firstName").orElse(null));
+    }
+
+    @Test
+    public void testMergeWithMixedNumericCollectionKeys() {
+        Map<String, String> collectionKeys = Collections.singletonMap("people", "id");
+        Map<String, Object> source = new LinkedHashMap<>();
+        source.put("people", new ArrayList<>(Collections.singletonList(new LinkedHashMap<String, Object>() {{
+            put("id", 1L);
+            put("age", 30);
+        }})));
+        this.mapUtils.merge(this.map1, source, collectionKeys);
+        Assertions.assertEquals(2, ((List<Object>) this.map1.get("people")).size());
+        Assertions.assertEquals(30, this.mapUtils.read(this.map1, "people.0.age").orElse(null));
+    }
+
+    @Test
+    public void testMergeWithMixedTypeCollectionKeys() {
+        Map<String, String> collectionKeys = Collections.singletonMap("people", "id");
+        Map<String, Object> source = new LinkedHashMap<>();
+        source.put("people", new ArrayList<>(Collections.singletonList(new LinkedHashMap<String, Object>() {{
+            put("id", "1");
+            put("age", 30);
+        }})));
+        this.mapUtils.merge(this.map1, source, collectionKeys);
+        Assertions.assertEquals(2, ((List<Object>) this.map1.get("people")).size());
+        Assertions.assertEquals(30, this.mapUtils.read(this.map1, "people.0.age").orElse(null));
+    }
+
+    @Test
+    public void testMergeParallel() {
+        Map<String, String> collectionKeys = new HashMap<String, String>() {{
+            put("people", "id");
+            put("identifiers", "type");
+        }};
+        Map<String, Object> expected = this.getMap("mock-object-1.json");
+        this.mapUtils.merge(expected, this.getMap("mock-object-2.json"), collectionKeys);
+        this.mapUtils.setParallelThreshold(1);
+        this.mapUtils.mergeParallel(this.map1, this.map2, collectionKeys);
+        Assertions.assertEquals(expected, this.map1);
+        this.testMergeWithCollectionKeysAssertions();
+    }
+
+    @Test
+    public void testMergeParallelWithoutCollectionKeys() {
+        Map<String, Object> expected = this.getMap("mock-object-1.json");
+        this.mapUtils.merge(expected, this.getMap("mock-object-2.json"));
+        this.mapUtils.setParallelThreshold(1);
+        this.mapUtils.mergeParallel(this.map1, this.map2);
+        Assertions.assertEquals(expected, this.map1);
+    }
+
+    @Test
+    public void testMergeStream() throws IOException {
+        Map<String, String> collectionKeys = new HashMap<String, String>() {{
+            put("people", "id");
+            put("identifiers", "type");
+        }};
+        Map<String, Object> expected = this.getMap("mock-object-1.json");
+        this.mapUtils.merge(expected, this.map2, collectionKeys);
+        try (JsonParser parser = this.getParser("mock-object-2.json")) {
+            new JsonStreamMerge(this.mapUtils).merge(this.map1, parser, collectionKeys);
+        }
+        Assertions.assertEquals(expected, this.map1);
+        this.testMergeWithCollectionKeysAssertions();
+    }
+
+    @Test
+    public void testMergeStreamWithoutCollectionKeys() throws IOException {
+        Map<String, Object> expected = this.getMap("mock-object-1.json");
+        this.mapUtils.merge(expected, this.map2);
+        try (JsonParser parser = this.getParser("mock-object-2.json")) {
+            new JsonStreamMerge(this.mapUtils).merge(this.map1, parser);
+        }
+        Assertions.assertEquals(expected, this.map1);
+    }
+
+    @Test
+    public void testMergeStreamWithMetricsAndSizeHints() throws IOException {
+        Map<String, String> collectionKeys = new HashMap<String, String>() {{
+            put("people", "id");
+            put("identifiers", "type");
+        }};
+        List<OperationMetrics> metrics = new ArrayList<>();
+        this.mapUtils.setMetricsListener(metrics::add);
+        this.mapUtils.setSizeHint("people", 64);
+        this.mapUtils.setAdaptiveSizing(true);
+        try (JsonParser parser = this.getParser("mock-object-2.json")) {
+            new JsonStreamMerge(this.mapUtils).merge(this.map1, parser, collectionKeys);
+        }
+        this.mapUtils.setMetricsListener(null);
+        this.testMergeWithCollectionKeysAssertions();
+        Assertions.assertEquals(64, this.mapUtils.getSizeHint("people"));
+        // nested merges of keyed items are counted as part of the stream merge
+        Assertions.assertEquals(1, metrics.size());
+        OperationMetrics merge = metrics.get(0);
+        Assertions.assertEquals(Operation.MERGE, merge.getOperation());
+        Assertions.assertTrue(merge.getNodesVisited() > 0);
+        Assertions.assertTrue(merge.getNodesCreated() > 0);
+        Assertions.assertTrue(merge.getCollectionsMerged() > 0);
+        Assertions.assertTrue(merge.getCollectionItemsMerged() >= 2 * merge.getCollectionsMerged());
+        Assertions.assertTrue(merge.getCollectionKeyLookups() > 0);
+    }
+
+    @Test
+    public void testMergeCollectionWithHashCollisions() {
+        // "Aa" and "BB" share a hashCode but are distinct values
+        Map<String, Object> target = new HashMap<>();
+        target.put("values", new ArrayList<>(Arrays.asList("Aa", "x")));
+        Map<String, Object> source = new HashMap<>();
+        source.put("values", new ArrayList<>(Arrays.asList("BB", "x")));
+        this.mapUtils.merge(target, source);
+        Assertions.assertEquals(Arrays.asList("Aa", "x", "BB"), target.get("values"));
+    }
+
+    @Test
+    public void testMergeCollectionOfMapsWithoutCollectionKeys() {
+        this.mapUtils.merge(this.map1, this.map2);
+        List<Map<String, Object>> people = (List<Map<String, Object>>) this.mapUtils.read(this.map1, "people").orElse(new ArrayList<>());
+        // John Doe differs between documents, so both versions are kept alongside Jane Smith and John Wick
+        Assertions.assertEquals(4, people.size());
+        this.mapUtils.merge(this.map1, this.map2);
+        people = (List<Map<String, Object>>) this.mapUtils.read(this.map1, "people").orElse(new ArrayList<>());
+        Assertions.assertEquals(4, people.size());
+    }
+
+    @Test
+    public void testMergeImmutable() {
+        Map<String, String> collectionKeys = new HashMap<String, String>() {{
+            put("people", "id");
+            put("identifiers", "type");
+        }};
+        Map<String, Object> expected = this.getMap("mock-object-1.json");
+        this.mapUtils.merge(expected, this.getMap("mock-object-2.json"), collectionKeys);
+        Map<String, Object> result = this.mapUtils.mergeImmutable(this.map1, this.map2, collectionKeys);
+        Assertions.assertEquals(expected, result);
+        Assertions.assertEquals(this.getMap("mock-object-1.json"), this.map1);
+        Assertions.assertEquals(this.getMap("mock-object-2.json"), this.map2);
+        // Jane Smith is not part of the source, so her subtree is shared
+        Assertions.assertSame(this.mapUtils.read(this.map1, "people.1").orElse(null), this.mapUtils.read(result, "people.1").orElse(null));
+        Assertions.assertSame(result, this.mapUtils.mergeImmutable(result, this.map2, collectionKeys));
+    }
+
+    @Test
+    public void testMergeImmutableWithPersistentSuppliers() {
+        this.mapUtils.setMapSupplier(MapSupplier.PERSISTENT_HASH_MAP);
+        this.mapUtils.setListSupplier(ListSupplier.PERSISTENT_VECTOR);
+        Map<String, Object> expected = this.getMap("mock-object-1.json");
+        this.mapUtils.merge(expected, this.getMap("mock-object-2.json"));
+        Map<String, Object> target = (Map<String, Object>) this.convert(this.map1);
+        Map<String, Object> result = this.mapUtils.mergeImmutable(target, (Map<String, Object>) this.convert(this.map2));
+        Assertions.assertEquals(expected, result);
+        Assertions.assertEquals(this.map1, target);
+        Assertions.assertTrue(result instanceof PersistentHashMap);
+        Assertions.assertTrue(result.get("people") instanceof PersistentVector);
+    }
+
+    /**
+     * Copies a value using the suppliers configured on mapUtils.
+     */
+    private Object convert(Object value) {
+        if (value instanceof Map) {
+            Map<Object, Object> map = this.mapUtils.getMapSupplier().getSupplier().apply(0);
+            ((Map<Object, Object>) value).forEach((k, v) -> map.put(k, this.convert(v)));
+            return map;
+        } else if (value instanceof List) {
+            List<Object> list = this.mapUtils.getListSupplier().getSupplier().apply(0);
+            ((List<Object>) value).forEach(v -> list.add(this.convert(v)));
+            return list;
+        }
+        return value;
+    }
+
+    @Test
+    public void testMergeWithShapedMaps() {
+        Map<String, String> collectionKeys = new HashMap<String, String>() {{
+            put("people", "id");
+            put("identifiers", "type");
+        }};
+        this.mapUtils.setMapSupplier(MapSupplier.SHAPED);
+        this.map1 = (Map<String, Object>) this.convert(this.map1);
+        this.mapUtils.merge(this.map1, (Map<String, Object>) this.convert(this.map2), collectionKeys);
+        Assertions.assertTrue(this.mapUtils.read(this.map1, "people.2").orElse(null) instanceof ShapeMap);
+        this.testMergeWithCollectionKeysAssertions();
+    }
+
+    @Test
+    public void testMergeConcurrent() throws Exception {
+        Map<String, String> collectionKeys = new HashMap<String, String>() {{
+            put("people", "id");
+        }};
+        Map<String, Object> target = new ConcurrentHashMap<>();
+        target.put("people", new ArrayList<>(Collections.singletonList(this.person(0))));
+        target.put("stats", new ConcurrentHashMap<>());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int offset = thread * 100;
+                futures.add(executor.submit(() -> {
+                    for (int i = 1; i <= 100; i++) {
+                        Map<String, Object> source = new HashMap<>();
+                        source.put("people", new ArrayList<>(Collections.singletonList(this.person(offset + i))));
+                        source.put("stats", new HashMap<>(Collections.singletonMap("thread" + offset, i)));
+                        this.mapUtils.mergeConcurrent(target, source, collectionKeys);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        List<Map<String, Object>> people = (List<Map<String, Object>>) target.get("people");
+        Assertions.assertEquals(801, people.size());
+        Map<String, Object> stats = (Map<String, Object>) target.get("stats");
+        Assertions.assertEquals(8, stats.size());
+        Assertions.assertEquals(100, stats.get("thread0"));
+    }
+
+    @Test
+    public void testMergeAll() {
+        Map<String, String> collectionKeys = new HashMap<String, String>() {{
+            put("people", "id");
+            put("identifiers", "type");
+        }};
+        List<Map<String, Object>> sources = new ArrayList<>();
+        sources.add(this.getMap("mock-object-2.json"));
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> source = new HashMap<>();
+            source.put("people", new ArrayList<>(Arrays.asList(this.person(1), this.person(10 + i))));
+            sources.add(source);
+        }
+        // replacing a keyed collection with a value and back leaves only the later collection
+        sources.add(Collections.singletonMap("classes", "none"));
+        sources.add(this.getMap("mock-object-2.json"));
+        sources.add(Collections.singletonMap("people", new ArrayList<>(Collections.singletonList("anonymous"))));
+        Map<String, Object> expected = this.getMap("mock-object-1.json");
+        for (Map<String, Object> source : sources) {
+            this.mapUtils.merge(expected, source, collectionKeys);
+        }
+        sources.set(0, this.getMap("mock-object-2.json"));
+        sources.set(sources.size() - 2, this.getMap("mock-object-2.json"));
+        this.mapUtils.mergeAll(this.map1, sources, collectionKeys);
+        Assertions.assertEquals(expected, this.map1);
+        Assertions.assertEquals(7, ((List<Object>) this.map1.get("people")).size());
+        Assertions.assertEquals("Person12", this.mapUtils.read(this.map1, "people.5.firstName").orElse(null));
+    }
+
+    @Test
+    public void testMergeAllWithoutCollectionKeys() {
+        Map<String, Object> expected = this.getMap("mock-object-1.json");
+        this.mapUtils.merge(expected, this.getMap("mock-object-2.json"));
+        this.mapUtils.merge(expected, this.getMap("mock-object-2.json"));
+        this.mapUtils.mergeAll(this.map1, Arrays.asList(this.map2, this.getMap("mock-object-2.json")));
+        Assertions.assertEquals(expected, this.map1);
+    }
+
+    @Test
+    public void testMapPipeline() throws InterruptedException {
+        Map<String, String> keys = new HashMap<String, String>() {{
+            put("person.id", "id");
+            put("person.name", "firstName");
+        }};
+        Map<String, Object> defaults = new HashMap<>();
+        defaults.put("source", "ingest");
+        MapPipeline pipeline = MapPipeline.builder(this.mapUtils)
+                .filter("id", id -> (Integer) id % 10 != 0)
+                .assign(keys, true)
+                .merge(defaults, null)
+                .queueCapacity(16)
+                .batchSize(25)
+                .build();
+        List<List<Map<String, Object>>> batches = new ArrayList<>();
+        List<Map<String, Object>> input = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            input.add(this.person(i));
+        }
+        Assertions.assertEquals(900, pipeline.run(input.stream(), batches::add));
+        Assertions.assertEquals(36, batches.size());
+        List<Object> ids = new ArrayList<>();
+        for (List<Map<String, Object>> batch : batches) {
+            Assertions.assertTrue(batch.size() <= 25);
+            for (Map<String, Object> document : batch) {
+                Assertions.assertEquals("ingest", document.get("source"));
+                Assertions.assertEquals("Person" + this.mapUtils.read(document, "person.id").orElse(null), this.mapUtils.read(document, "person.name").orElse(null));
+                ids.add(this.mapUtils.read(document, "person.id").orElse(null));
+            }
+        }
+        List<Object> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            if (i % 10 != 0) {
+                expected.add(i);
+            }
+        }
+        Assertions.assertEquals(expected, ids);
+        List<StageMetrics> metrics = pipeline.getStageMetrics();
+        Assertions.assertEquals(3, metrics.size());
+        Assertions.assertEquals("filter", metrics.get(0).getName());
+        Assertions.assertEquals(1000, metrics.get(0).getProcessed());
+        Assertions.assertEquals(100, metrics.get(0).getDropped());
+        Assertions.assertEquals(900, metrics.get(2).getProcessed());
+    }
+
+    @Test
+    public void testMapPipelineUnordered() throws InterruptedException {
+        MapPipeline pipeline = MapPipeline.builder(this.mapUtils)
+                .readAll(Collections.singletonList("id"))
+                .ordered(false)
+                .queueCapacity(4)
+                .build();
+        Set<Object> ids = new HashSet<>();
+        Iterator<Map<String, Object>> input = Arrays.asList(this.person(1), this.person(2), this.person(3)).iterator();
+        Assertions.assertEquals(3, pipeline.run(input, batch -> batch.forEach(document -> ids.add(document.get("id")))));
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(1, 2, 3)), ids);
+    }
+
+    @Test
+    public void testMapPipelineFailure() {
+        MapPipeline pipeline = MapPipeline.builder(this.mapUtils)
+                .stage("fail", document -> {
+                    throw new IllegalStateException("failed " + document.get("id"));
+                })
+                .build();
+        IllegalStateException e = Assertions.assertThrows(IllegalStateException.class,
+                () -> pipeline.run(Arrays.asList(this.person(1), this.person(2)).stream(), batch -> Assertions.fail()));
+        Assertions.assertEquals("failed 1", e.getMessage());
+    }
+
+    @Test
+    public void testAdaptiveSizing() {
+        this.mapUtils.setAdaptiveSizing(true);
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> record = new HashMap<>();
+            Map node = this.mapUtils.addNode(record, "person.address");
+            for (int j = 0; j < 100; j++) {
+                node.put("line" + j, j);
+            }
+        }
+        Assertions.assertEquals(100, this.mapUtils.getSizeHint("person.address"));
+        Assertions.assertEquals(1, this.mapUtils.getSizeHint("person"));
+        AssignPlan plan = AssignPlan.compile(new HashMap<String, String>() {{
+            put("person.id", "people.0.id");
+            put("person.name", "people.0.firstName");
+        }}, true);
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> target = new HashMap<>();
+            this.mapUtils.assign(target, this.map1, plan);
+            Assertions.assertEquals("John", this.mapUtils.read(target, "person.name").orElse(null));
+        }
+        Assertions.assertEquals(2, this.mapUtils.getSizeHint("person"));
+        this.mapUtils.setSizeHint("person", 10);
+        Assertions.assertEquals(10, this.mapUtils.getSizeHint("person"));
+        this.mapUtils.setAdaptiveSizing(false);
+        Assertions.assertEquals(0, this.mapUtils.getSizeHint("person.address"));
+        Assertions.assertEquals(10, this.mapUtils.getSizeHint("person"));
+        this.mapUtils.setSizeHint("person", 0);
+        Assertions.assertEquals(0, this.mapUtils.getSizeHint("person"));
+    }
+
+    @Test
+    public void testMergeWithSizeHints() {
+        Map<String, String> collectionKeys = new HashMap<String, String>() {{
+            put("people", "id");
+            put("identifiers", "type");
+        }};
+        this.mapUtils.setSizeHint("people", 64);
+        this.mapUtils.setAdaptiveSizing(true);
+        this.mapUtils.merge(this.map1, this.map2, collectionKeys);
+        this.testMergeWithCollectionKeysAssertions();
+        Assertions.assertEquals(64, this.mapUtils.getSizeHint("people"));
+    }
+
+    @Test
+    public void testCloneDeep() {
+        Map<String, Object> clone = this.mapUtils.cloneDeep(this.map1);
+        Assertions.assertEquals(this.map1, clone);
+        Assertions.assertNotSame(this.map1.get("people"), clone.get("people"));
+        Assertions.assertNotSame(this.mapUtils.read(this.map1, "people.0.hobbies").orElse(null), this.mapUtils.read(clone, "people.0.hobbies").orElse(null));
+        this.mapUtils.merge(clone, this.map2);
+        Assertions.assertEquals(this.getMap("mock-object-1.json"), this.map1);
+        Assertions.assertNull(this.mapUtils.cloneDeep(null));
+    }
+
+    @Test
+    public void testCloneDeepConvertsSuppliers() {
+        Map<String, Object> source = new HashMap<>(this.map1);
+        Set<Object> tags = new LinkedHashSet<>();
+        tags.add(new HashMap<>(Collections.singletonMap("name", "a")));
+        tags.add(new HashSet<>(Arrays.asList(1, 2)));
+        tags.add("b");
+        source.put("tags", tags);
+        source.put("missing", null);
+        this.mapUtils.setMapSupplier(MapSupplier.CONCURRENT_HASH_MAP);
+        this.mapUtils.setListSupplier(ListSupplier.LINKED_LIST);
+        Map<String, Object> clone = this.mapUtils.cloneDeep(source);
+        Assertions.assertTrue(clone instanceof ConcurrentHashMap);
+        Assertions.assertTrue(clone.get("people") instanceof LinkedList);
+        Assertions.assertTrue(this.mapUtils.read(clone, "people.0").orElse(null) instanceof ConcurrentHashMap);
+        Assertions.assertFalse(clone.containsKey("missing"));
+        Assertions.assertEquals(tags, clone.get("tags"));
+        Assertions.assertTrue(((Set<Object>) clone.get("tags")).contains(Collections.singletonMap("name", "a")));
+        clone.remove("tags");
+        source.remove("tags");
+        source.remove("missing");
+        Assertions.assertEquals(source, clone);
+    }
+
+    @Test
+    public void testCloneDeepPreservesIdentity() {
+        Map<String, Object> shared = new HashMap<>(Collections.singletonMap("id", 1));
+        Map<String, Object> source = new HashMap<>();
+        source.put("a", shared);
+        source.put("b", new ArrayList<>(Collections.singletonList(shared)));
+        source.put("self", source);
+        Map<String, Object> clone = this.mapUtils.cloneDeep(source, true);
+        Assertions.assertNotSame(shared, clone.get("a"));
+        Assertions.assertSame(clone.get("a"), ((List<Object>) clone.get("b")).get(0));
+        Assertions.assertSame(clone, clone.get("self"));
+        source.remove("self");
+        Map<String, Object> tree = this.mapUtils.cloneDeep(source);
+        Assertions.assertNotSame(tree.get("a"), ((List<Object>) tree.get("b")).get(0));
+    }
+
+    @Test
+    public void testCloneDeepIsIterative() {
+        Map<String, Object> source = new HashMap<>();
+        Map<String, Object> current = source;
+        for (int i = 0; i < 100_000; i++) {
+            Map<String, Object> next = new HashMap<>();
+            current.put("next", new ArrayList<>(Collections.singletonList(next)));
+            current = next;
+        }
+        current.put("id", 1);
+        Map<String, Object> clone = this.mapUtils.cloneDeep(source);
+        for (int i = 0; i < 100_000; i++) {
+            clone = (Map<String, Object>) ((List<Object>) clone.get("next")).get(0);
+        }
+        Assertions.assertEquals(1, clone.get("id"));
+    }
+
+    @Test
+    public void testCloneDeepParallel() {
+        Map<String, Object> source = new HashMap<>();
+        List<Object> people = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Map<String, Object> person = this.person(i);
+            person.put("tags", new HashSet<>(Arrays.asList("a" + i, "b" + i)));
+            people.add(person);
+        }
+        source.put("people", people);
+        source.put("count", 100);
+        this.mapUtils.setParallelThreshold(2);
+        Map<String, Object> clone = this.mapUtils.cloneDeepParallel(source);
+        Assertions.assertEquals(source, clone);
+        Assertions.assertNotSame(people.get(5), ((List<Object>) clone.get("people")).get(5));
+        Assertions.assertEquals(this.mapUtils.cloneDeep(source), clone);
+    }
+
+    private Map<String, Object> person(int id) {
+        Map<String, Object> person = new HashMap<>();
+        person.put("id", id);
+        person.put("firstName", "Person" + id);
+        return person;
+    }
+
     private void testMergeWithCollectionKeysAssertions() {
         // John assertions
         String johnNickname = (String) this.mapUtils.read(this.map1, "people.0.identifiers.1.value").orElse(null);
@@ -185,6 +779,220 @@ public class MapUtilsTest {
         }
     }
 
+    @Test
+    public void testAssignWithCompactMaps() {
+        this.mapUtils.setMapSupplier(MapSupplier.COMPACT);
+        Map<String, String> paths = new HashMap<String, String>() {{
+            put("person.id", "people.0.id");
+            put("person.name.first", "people.0.firstName");
+            put("person.name.last", "people.0.lastName");
+        }};
+        Map<String, Object> result = new LinkedHashMap<>();
+        this.mapUtils.assign(result, this.map1, paths, true);
+        Assertions.assertTrue(result.get("person") instanceof CompactMap);
+        Assertions.assertEquals("John", this.mapUtils.read(result, "person.name.first").orElse(null));
+        Assertions.assertEquals(1, this.mapUtils.read(result, "person.id").orElse(null));
+    }
+
+    @Test
+    public void testAssignWithCompiledPaths() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        this.mapUtils.assignPath(result, this.map1, MapPath.compile("person.name.first"), MapPath.compile("people.1.firstName"));
+        this.mapUtils.assignPath(result, this.map1, MapPath.compile("person.name.last"), MapPath.compile("people.1.lastName"));
+        this.mapUtils.assignPath(result, this.map1, MapPath.compile("person.missing"), MapPath.compile("people.1.missing"));
+        Assertions.assertEquals("Jane", this.mapUtils.read(result, "person.name.first").orElse(null));
+        Assertions.assertEquals("Smith", this.mapUtils.read(result, "person.name.last").orElse(null));
+        Assertions.assertFalse(this.mapUtils.read(result, "person.missing").isPresent());
+    }
+
+    @Test
+    public void testAssignWithPlan() {
+        Map<String, String> paths = new LinkedHashMap<String, String>() {{
+            put("person.id", "people.0.id");
+            put("person.name.first", "people.0.firstName");
+            put("person.name.last", "people.0.lastName");
+            put("person.missing.value", "people.0.missing");
+            put("person.hobbies", "people.0.hobbies");
+            put("ssn", "people.0.identifiers.0.value");
+        }};
+        AssignPlan plan = AssignPlan.compile(paths, true);
+        Assertions.assertEquals(6, plan.size());
+        for (Map<String, Object> source : Arrays.asList(this.map1, this.map2)) {
+            Map<String, Object> expected = new LinkedHashMap<>();
+            this.mapUtils.assign(expected, source, paths, true);
+            Map<String, Object> result = new LinkedHashMap<>();
+            this.mapUtils.assign(result, source, plan);
+            Assertions.assertEquals(expected, result);
+            Assertions.assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(result.keySet()));
+            Assertions.assertFalse(this.mapUtils.read(result, "person.missing").isPresent());
+        }
+    }
+
+    @Test
+    public void testAssignWithPlanReplacingNode() {
+        Map<String, String> paths = new LinkedHashMap<String, String>() {{
+            put("person.name.first", "people.0.firstName");
+            put("person.name", "people.1");
+            put("person.name.last", "people.0.lastName");
+        }};
+        Map<String, Object> expected = new LinkedHashMap<>();
+        this.mapUtils.assign(expected, this.map1, paths, true);
+        Map<String, Object> result = new LinkedHashMap<>();
+        this.mapUtils.assign(result, this.map1, AssignPlan.compile(paths, true));
+        Assertions.assertEquals(expected, result);
+        Assertions.assertEquals("Doe", this.mapUtils.read(result, "person.name.last").orElse(null));
+        Assertions.assertEquals("Jane", this.mapUtils.read(result, "person.name.firstName").orElse(null));
+    }
+
+    @Test
+    public void testDiffAndApplyPatch() {
+        Map<String, String> collectionKeys = new HashMap<String, String>() {{
+            put("people", "id");
+            put("identifiers", "type");
+        }};
+        Map<String, Object> updated = this.getMap("mock-object-1.json");
+        this.mapUtils.merge(updated, this.map2, collectionKeys);
+        MapPatch patch = this.mapUtils.diff(this.map1, updated, collectionKeys);
+        this.mapUtils.applyPatch(this.map1, patch);
+        Assertions.assertEquals(updated, this.map1);
+        this.testMergeWithCollectionKeysAssertions();
+        Assertions.assertTrue(this.mapUtils.diff(this.map1, updated, collectionKeys).isEmpty());
+
+        // only the changed fields of matched items are included
+        Map<String, Object> changed = this.getMap("mock-object-1.json");
+        ((Map<String, Object>) ((List<Object>) changed.get("people")).get(1)).put("age", 24);
+        ((List<Object>) changed.get("people")).remove(0);
+        patch = this.mapUtils.diff(this.getMap("mock-object-1.json"), changed, collectionKeys);
+        Assertions.assertEquals(2, patch.size());
+        Assertions.assertEquals(MapPatch.Type.REPLACE, patch.getChanges().get(0).getType());
+        Assertions.assertEquals("people.1.age", patch.getChanges().get(0).getPath());
+        Assertions.assertEquals(24, patch.getChanges().get(0).getValue());
+        Assertions.assertEquals(MapPatch.Type.REMOVE, patch.getChanges().get(1).getType());
+        Assertions.assertEquals("people.0", patch.getChanges().get(1).getPath());
+        Map<String, Object> result = this.getMap("mock-object-1.json");
+        this.mapUtils.applyPatch(result, patch);
+        Assertions.assertEquals(changed, result);
+    }
+
+    @Test
+    public void testDiffWithoutCollectionKeys() {
+        Map<String, Object> updated = this.getMap("mock-object-1.json");
+        this.mapUtils.merge(updated, this.map2);
+        updated.remove("people");
+        updated.put("tags", new LinkedHashSet<>(Arrays.asList("a", "b")));
+        this.map1.put("tags", new LinkedHashSet<>(Arrays.asList("b", "c")));
+        MapPatch patch = this.mapUtils.diff(this.map1, updated);
+        this.mapUtils.applyPatch(this.map1, patch);
+        Assertions.assertEquals(updated, this.map1);
+        // a null Map is treated as empty, so every key is added
+        Assertions.assertEquals(updated.size(), this.mapUtils.diff(null, updated).size());
+    }
+
+    @Test
+    public void testProject() {
+        Map<String, String> paths = new LinkedHashMap<String, String>() {{
+            put("person.name.first", "people.0.firstName");
+            put("person.name.last", "people.0.lastName");
+            put("person.hobbies", "people.0.hobbies");
+            put("id", "people.0.id");
+            put("missing", "people.0.missing");
+            put("other.missing", "people.0.missing");
+        }};
+        Map<String, Object> expected = new LinkedHashMap<>();
+        this.mapUtils.assign(expected, this.map1, paths, true);
+        Map<String, Object> view = this.mapUtils.project(this.map1, paths);
+        Assertions.assertEquals(expected, view);
+        Assertions.assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(view.keySet()));
+        Assertions.assertEquals("Doe", this.mapUtils.read(view, "person.name.last").orElse(null));
+        Assertions.assertFalse(view.containsKey("missing"));
+        Assertions.assertFalse(view.containsKey("other"));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> view.put("id", 2));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> ((Map<String, Object>) view.get("person")).remove("name"));
+
+        // values are resolved on first access, then remembered
+        Map<String, Object> person = (Map<String, Object>) ((List<Object>) this.map1.get("people")).get(0);
+        Map<String, Object> unread = this.mapUtils.project(this.map1, paths);
+        person.put("missing", "found");
+        person.put("firstName", "Johnny");
+        Assertions.assertFalse(view.containsKey("missing"));
+        Assertions.assertEquals("John", this.mapUtils.read(view, "person.name.first").orElse(null));
+        Assertions.assertEquals("found", unread.get("missing"));
+        Assertions.assertEquals("found", this.mapUtils.read(unread, "other.missing").orElse(null));
+        Assertions.assertEquals("Johnny", this.mapUtils.read(unread, "person.name.first").orElse(null));
+        Assertions.assertTrue(this.mapUtils.project(null, paths).isEmpty());
+    }
+
+    @Test
+    public void testMetricsListener() {
+        List<OperationMetrics> metrics = new ArrayList<>();
+        this.mapUtils.setMetricsListener(metrics::add);
+        Assertions.assertEquals(1, this.mapUtils.read(this.map1, "people.0.id").orElse(null));
+        Map<String, String> collectionKeys = new HashMap<String, String>() {{
+            put("people", "id");
+            put("identifiers", "type");
+        }};
+        this.mapUtils.merge(this.map1, this.map2, collectionKeys);
+        this.mapUtils.addNode(new HashMap<>(), "person.address");
+        this.mapUtils.setMetricsListener(null);
+        this.mapUtils.read(this.map1, "people.0.id");
+        this.testMergeWithCollectionKeysAssertions();
+
+        Assertions.assertEquals(3, metrics.size());
+        OperationMetrics read = metrics.get(0);
+        Assertions.assertEquals(Operation.READ, read.getOperation());
+        Assertions.assertEquals("people.0.id", read.getPath());
+        Assertions.assertEquals(3, read.getNodesVisited());
+        Assertions.assertTrue(read.getDurationNanos() >= 0);
+        // nested merges and collection key reads are counted as part of the outer merge
+        OperationMetrics merge = metrics.get(1);
+        Assertions.assertEquals(Operation.MERGE, merge.getOperation());
+        Assertions.assertNull(merge.getPath());
+        Assertions.assertTrue(merge.getCollectionsMerged() > 0);
+        Assertions.assertTrue(merge.getCollectionItemsMerged() >= 2 * merge.getCollectionsMerged());
+        Assertions.assertTrue(merge.getCollectionKeyLookups() > 0);
+        Assertions.assertTrue(merge.getNodesCreated() > 0);
+        OperationMetrics addNode = metrics.get(2);
+        Assertions.assertEquals(Operation.ADD_NODE, addNode.getOperation());
+        Assertions.assertEquals(2, addNode.getNodesCreated());
+        Assertions.assertEquals(1, addNode.getPathsCompiled());
+    }
+
+    @Test
+    public void testMetricsListenerWithAssign() {
+        List<OperationMetrics> metrics = new ArrayList<>();
+        this.mapUtils.setMetricsListener(metrics::add);
+        Map<String, String> paths = new LinkedHashMap<String, String>() {{
+            put("person.first", "people.0.firstName");
+            put("person.last", "people.0.lastName");
+        }};
+        this.mapUtils.assign(new LinkedHashMap<>(), this.map1, paths, true);
+        Assertions.assertEquals(1, metrics.size());
+        Assertions.assertEquals(Operation.ASSIGN, metrics.get(0).getOperation());
+        Assertions.assertEquals(1, metrics.get(0).getNodesCreated());
+        Assertions.assertEquals(4, metrics.get(0).getPathsCompiled());
+    }
+
+    @Test
+    public void testMetricsListenerWithCloneDeep() {
+        List<OperationMetrics> metrics = new ArrayList<>();
+        this.mapUtils.setMetricsListener(metrics::add);
+        Map<String, Object> source = new HashMap<>();
+        source.put("person", new HashMap<>(Collections.singletonMap("hobbies", new ArrayList<>(Arrays.asList("a", "b")))));
+        this.mapUtils.cloneDeep(source);
+        this.mapUtils.setParallelThreshold(1);
+        this.mapUtils.cloneDeepParallel(source);
+        // parallel copies run on other threads, so they are not reported
+        Assertions.assertEquals(1, metrics.size());
+        Assertions.assertEquals(Operation.CLONE, metrics.get(0).getOperation());
+        Assertions.assertEquals(3, metrics.get(0).getNodesCreated());
+        Assertions.assertEquals(4, metrics.get(0).getNodesVisited());
+    }
+
+    private JsonParser getParser(String fileName) throws IOException {
+        InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(fileName);
+        return new ObjectMapper().getFactory().createParser(in);
+    }
+
     private Map<String, Object> getMap(String fileName) {
         try (InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(fileName)) {
             if (in != null) {
@@ -0,0 +1,129 @@
+package org.maputils.binary;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.maputils.MapUtils;
+import org.maputils.suppliers.MapSupplier;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+@SuppressWarnings("rawtypes,unchecked")
+public class BinaryDocumentTest {
+
+    private final MapUtils mapUtils = new MapUtils();
+
+    @Test
+    public void testReadMatchesMapUtils() throws IOException {
+        Map<String, Object> map = this.getMap("mock-object-1.json");
+        BinaryDocument document = BinaryDocument.wrap(ByteBuffer.wrap(BinaryWriter.write(map)));
+        String[] paths = {
+                "people", "people.0", "people.1.firstName", "people.0.identifiers.0.type", "people.0.hobbies.1",
+                "people.0.age.value", "people.first", "missing", "people.0.missing.key"
+        };
+        for (String path : paths) {
+            Assertions.assertEquals(this.mapUtils.read(map, path), document.read(path), path);
+        }
+        Assertions.assertFalse(document.read("people.2").isPresent());
+        Assertions.assertEquals(map, document.toMap());
+    }
+
+    @Test
+    public void testValueTypes() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("string", "value");
+        map.put("unicode", "caf\u00e9 \u2603");
+        map.put("true", true);
+        map.put("false", false);
+        map.put("int", -42);
+        map.put("long", Long.MAX_VALUE);
+        map.put("double", 1.5);
+        map.put("bigInteger", new BigInteger("123456789012345678901234567890"));
+        map.put("bigDecimal", new BigDecimal("1.10"));
+        map.put("null", null);
+        map.put(null, "null key");
+        map.put("caf\u00e9", "non-ASCII key");
+        map.put("set", new LinkedHashSet<>(Arrays.asList("a", "b")));
+        map.put("empty", new LinkedHashMap<>());
+        BinaryDocument document = BinaryDocument.wrap(ByteBuffer.wrap(BinaryWriter.write(map)));
+        Assertions.assertEquals(map, document.toMap());
+        Assertions.assertEquals("non-ASCII key", document.read("caf\u00e9").orElse(null));
+        Assertions.assertEquals(Long.MAX_VALUE, document.read("long").orElse(null));
+        Assertions.assertFalse(document.read("null").isPresent());
+        Assertions.assertFalse(document.read("set.0").isPresent());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> BinaryWriter.write(Collections.singletonMap("date", new Date())));
+    }
+
+    @Test
+    public void testLargeMapsAreIndexed() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            map.put("key" + i, Collections.singletonMap("value", i));
+        }
+        // keys which share a hash
+        map.put("Aa", 1);
+        map.put("BB", 2);
+        MapUtils mapUtils = new MapUtils();
+        mapUtils.setMapSupplier(MapSupplier.LINKED_HASH_MAP);
+        BinaryDocument document = BinaryDocument.wrap(ByteBuffer.wrap(BinaryWriter.write(map)), mapUtils);
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertEquals(i, document.read("key" + i + ".value").orElse(null));
+        }
+        Assertions.assertEquals(1, document.read("Aa").orElse(null));
+        Assertions.assertEquals(2, document.read("BB").orElse(null));
+        Assertions.assertFalse(document.read("key1000").isPresent());
+        Assertions.assertEquals(new ArrayList<>(map.keySet()), new ArrayList<>(document.toMap().keySet()));
+    }
+
+    @Test
+    public void testMemoryMappedDocument() throws IOException {
+        Map<String, Object> map = this.getMap("mock-object-2.json");
+        Path file = Files.createTempFile("document", ".bin");
+        try {
+            Files.write(file, BinaryWriter.write(map));
+            MapUtils mapUtils = new MapUtils();
+            mapUtils.setMapSupplier(MapSupplier.LINKED_HASH_MAP);
+            BinaryDocument document = BinaryDocument.map(file, mapUtils);
+            Assertions.assertEquals(this.mapUtils.read(map, "people.0"), document.read("people.0"));
+            Assertions.assertTrue(document.read("people.0").orElse(null) instanceof LinkedHashMap);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testInvalidDocument() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> BinaryDocument.wrap(ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5})));
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        buffer.position(10);
+        buffer.put(BinaryWriter.write(Collections.singletonMap("key", "value")));
+        buffer.position(10);
+        Assertions.assertEquals("value", BinaryDocument.wrap(buffer).read("key").orElse(null));
+        Assertions.assertEquals(10, buffer.position());
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        Assertions.assertEquals("value", BinaryDocument.wrap(buffer).read("key").orElse(null));
+        Assertions.assertEquals(ByteOrder.LITTLE_ENDIAN, buffer.order());
+    }
+
+    @Test
+    public void testNonStringKey() {
+        Map map = new HashMap<>();
+        map.put(1, "value");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> BinaryWriter.write(map));
+    }
+
+    private Map<String, Object> getMap(String fileName) throws IOException {
+        try (InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(fileName)) {
+            return (Map<String, Object>) new ObjectMapper().readValue(in, LinkedHashMap.class);
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+package org.maputils.collections;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class CompactMapTest {
+
+    @Test
+    public void testCompactMapMatchesLinkedHashMap() {
+        Random random = new Random(3);
+        for (int round = 0; round < 200; round++) {
+            Map<Object, Object> expected = new LinkedHashMap<>();
+            CompactMap<Object, Object> map = new CompactMap<>();
+            int keys = 1 + random.nextInt(2 * CompactMap.THRESHOLD);
+            for (int i = 0; i < 50; i++) {
+                Object key = random.nextInt(10) == 0 ? null : "key" + random.nextInt(keys);
+                if (random.nextInt(4) == 0) {
+                    Assertions.assertEquals(expected.remove(key), map.remove(key));
+                } else {
+                    Assertions.assertEquals(expected.put(key, i), map.put(key, i));
+                }
+                Assertions.assertEquals(expected.size(), map.size());
+            }
+            Assertions.assertEquals(expected, map);
+            Assertions.assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.keySet()));
+        }
+    }
+
+    @Test
+    public void testCompactMapUpgrade() {
+        CompactMap<String, Integer> map = new CompactMap<>(1);
+        for (int i = 0; i <= CompactMap.THRESHOLD; i++) {
+            map.put("key" + i, i);
+        }
+        Assertions.assertEquals(CompactMap.THRESHOLD + 1, map.size());
+        Assertions.assertEquals(Integer.valueOf(CompactMap.THRESHOLD), map.get("key" + CompactMap.THRESHOLD));
+        Assertions.assertEquals("key0", map.keySet().iterator().next());
+        map.clear();
+        Assertions.assertTrue(map.isEmpty());
+        map.put("key", 1);
+        Assertions.assertEquals(Integer.valueOf(1), map.get("key"));
+    }
+
+    @Test
+    public void testCompactMapIterator() {
+        CompactMap<String, Integer> map = new CompactMap<>(4);
+        for (int i = 0; i < 4; i++) {
+            map.put("key" + i, i);
+        }
+        map.entrySet().removeIf(entry -> entry.getValue() % 2 == 0);
+        Assertions.assertEquals(Arrays.asList("key1", "key3"), new ArrayList<>(map.keySet()));
+        for (Map.Entry<String, Integer> entry : map.entrySet()) {
+            entry.setValue(entry.getValue() * 10);
+        }
+        Assertions.assertEquals(Integer.valueOf(30), map.get("key3"));
+    }
+
+    @Test
+    public void testCompactMapEntryAfterChanges() {
+        CompactMap<String, Integer> map = new CompactMap<>(4);
+        for (int i = 0; i < 3; i++) {
+            map.put("key" + i, i);
+        }
+        Iterator<Map.Entry<String, Integer>> iterator = map.entrySet().iterator();
+        iterator.next();
+        Map.Entry<String, Integer> entry = iterator.next();
+        map.remove("key0");
+        entry.setValue(10);
+        Assertions.assertEquals(Integer.valueOf(10), map.get("key1"));
+        Assertions.assertEquals(Integer.valueOf(2), map.get("key2"));
+        for (int i = 3; i <= CompactMap.THRESHOLD + 1; i++) {
+            map.put("key" + i, i);
+        }
+        entry.setValue(20);
+        Assertions.assertEquals(Integer.valueOf(20), map.get("key1"));
+        map.remove("key1");
+        entry.setValue(30);
+        Assertions.assertFalse(map.containsKey("key1"));
+    }
+
+}
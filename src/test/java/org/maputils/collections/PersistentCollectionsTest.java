@@ -0,0 +1,124 @@
+package org.maputils.collections;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class PersistentCollectionsTest {
+
+    @Test
+    public void testPersistentHashMapMatchesHashMap() {
+        Random random = new Random(42);
+        Map<Object, Object> expected = new HashMap<>();
+        PersistentHashMap<Object, Object> map = new PersistentHashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            Object key = random.nextBoolean() ? (Object) random.nextInt(2000) : new CollidingKey(random.nextInt(50));
+            if (random.nextInt(3) == 0) {
+                Assertions.assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                Assertions.assertEquals(expected.put(key, i), map.put(key, i));
+            }
+        }
+        Assertions.assertEquals(expected.size(), map.size());
+        Assertions.assertEquals(expected, map);
+        Assertions.assertEquals(expected.hashCode(), map.hashCode());
+        map.put(null, "null");
+        Assertions.assertEquals("null", map.get(null));
+        Assertions.assertTrue(map.containsKey(null));
+    }
+
+    @Test
+    public void testPersistentHashMapCopy() {
+        PersistentHashMap<String, Object> map = new PersistentHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            map.put("key" + i, i);
+        }
+        PersistentHashMap<String, Object> copy = map.copy();
+        copy.put("key1", "changed");
+        copy.remove("key2");
+        copy.put("added", true);
+        Assertions.assertEquals(1, map.get("key1"));
+        Assertions.assertEquals(2, map.get("key2"));
+        Assertions.assertFalse(map.containsKey("added"));
+        Assertions.assertEquals(1000, map.size());
+        Assertions.assertEquals("changed", copy.get("key1"));
+        Assertions.assertFalse(copy.containsKey("key2"));
+        Assertions.assertEquals(1000, copy.size());
+    }
+
+    @Test
+    public void testPersistentHashMapIteratorRemove() {
+        PersistentHashMap<Integer, Integer> map = new PersistentHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            map.put(i, i);
+        }
+        map.entrySet().removeIf(entry -> entry.getKey() % 2 == 0);
+        Assertions.assertEquals(50, map.size());
+        for (Map.Entry<Integer, Integer> entry : map.entrySet()) {
+            entry.setValue(entry.getValue() * 10);
+        }
+        Assertions.assertEquals(10, map.get(1));
+        Assertions.assertNull(map.get(2));
+    }
+
+    @Test
+    public void testPersistentVectorMatchesArrayList() {
+        Random random = new Random(7);
+        List<Object> expected = new ArrayList<>();
+        PersistentVector<Object> list = new PersistentVector<>();
+        for (int i = 0; i < 40000; i++) {
+            list.add(i);
+            expected.add(i);
+        }
+        for (int i = 0; i < 2000; i++) {
+            int index = random.nextInt(expected.size());
+            Assertions.assertEquals(expected.set(index, "value" + i), list.set(index, "value" + i));
+        }
+        Assertions.assertEquals(expected, list);
+        list.add(5, "inserted");
+        expected.add(5, "inserted");
+        Assertions.assertEquals(expected.remove(100), list.remove(100));
+        Assertions.assertEquals(expected, list);
+    }
+
+    @Test
+    public void testPersistentVectorCopy() {
+        PersistentVector<Object> list = new PersistentVector<>();
+        for (int i = 0; i < 1100; i++) {
+            list.add(i);
+        }
+        PersistentVector<Object> copy = list.copy();
+        copy.set(0, "changed");
+        copy.set(1099, "changed");
+        copy.add("added");
+        list.add("other");
+        Assertions.assertEquals(0, list.get(0));
+        Assertions.assertEquals(1099, list.get(1099));
+        Assertions.assertEquals("other", list.get(1100));
+        Assertions.assertEquals("changed", copy.get(0));
+        Assertions.assertEquals("changed", copy.get(1099));
+        Assertions.assertEquals("added", copy.get(1100));
+    }
+
+    private static final class CollidingKey {
+
+        private final int id;
+
+        private CollidingKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).id == this.id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 17;
+        }
+
+    }
+
+}
@@ -0,0 +1,129 @@
+package org.maputils.collections;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class ShapeMapTest {
+
+    @Test
+    public void testShapeMapMatchesLinkedHashMap() {
+        Random random = new Random(11);
+        // random keys would fill the shared transition tree
+        ShapeMap.Shape root = ShapeMap.Shape.newTree();
+        for (int round = 0; round < 200; round++) {
+            Map<Object, Object> expected = new LinkedHashMap<>();
+            ShapeMap<Object, Object> map = new ShapeMap<>(4, root);
+            int keys = 1 + random.nextInt(2 * ShapeMap.MAX_SLOTS);
+            for (int i = 0; i < 100; i++) {
+                Object key = random.nextInt(20) == 0 ? null : "key" + random.nextInt(keys);
+                if (random.nextInt(5) == 0) {
+                    Assertions.assertEquals(expected.remove(key), map.remove(key));
+                } else {
+                    Assertions.assertEquals(expected.put(key, i), map.put(key, i));
+                }
+                Assertions.assertEquals(expected.size(), map.size());
+            }
+            Assertions.assertEquals(expected, map);
+            Assertions.assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.keySet()));
+        }
+    }
+
+    @Test
+    public void testShapeMapsShareShapes() {
+        ShapeMap<String, Object> first = this.person(1, "John", "Doe");
+        ShapeMap<String, Object> second = this.person(2, "Jane", "Smith");
+        Assertions.assertSame(first.getShape(), second.getShape());
+        Assertions.assertEquals("Smith", second.get("lastName"));
+        second.remove("hobbies");
+        second.put("hobbies", Collections.emptyList());
+        Assertions.assertNotSame(first.getShape(), second.getShape());
+        first.remove("hobbies");
+        first.put("hobbies", Collections.emptyList());
+        Assertions.assertSame(first.getShape(), second.getShape());
+    }
+
+    @Test
+    public void testMapsLeaveFullTree() {
+        // a key which follows too many others leaves the transition tree
+        ShapeMap.Shape root = ShapeMap.Shape.newTree();
+        for (int i = 0; i < 64; i++) {
+            ShapeMap<String, Object> map = new ShapeMap<>(4, root);
+            map.put("fanout", 0);
+            map.put("key" + i, i);
+        }
+        ShapeMap<String, Object> map = new ShapeMap<>(4, root);
+        map.put("fanout", 0);
+        map.put("extra", 1);
+        map.put("id", 2);
+        Assertions.assertSame(root, map.getShape());
+        Assertions.assertEquals(Arrays.asList("fanout", "extra", "id"), new ArrayList<>(map.keySet()));
+        map.remove("extra");
+        Assertions.assertEquals(2, map.get("id"));
+    }
+
+    @Test
+    public void testTransitionTreeIsBounded() {
+        ShapeMap.Shape root = ShapeMap.Shape.newTree();
+        ShapeMap<String, Object> interned = new ShapeMap<>(4, root);
+        interned.put("p", 0);
+        interned.put("q", 1);
+        interned.put("r", 2);
+        List<ShapeMap<String, Object>> maps = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            for (int j = 0; j < 64; j++) {
+                ShapeMap<String, Object> map = new ShapeMap<>(4, root);
+                map.put("a" + i, i);
+                map.put("b" + j, j);
+                maps.add(map);
+            }
+        }
+        // the tree is full, so maps given new keys switch to a LinkedHashMap
+        ShapeMap<String, Object> map = new ShapeMap<>(4, root);
+        map.put("a0", 0);
+        map.put("c", 1);
+        Assertions.assertSame(root, map.getShape());
+        Assertions.assertEquals(1, map.get("c"));
+        Assertions.assertSame(maps.get(0).getShape(), root.with("a0").with("b0"));
+        // removing a key may need a shape which is not in the tree either
+        Assertions.assertNotSame(root, interned.getShape());
+        Iterator<Map.Entry<String, Object>> iterator = interned.entrySet().iterator();
+        iterator.next();
+        iterator.remove();
+        Assertions.assertSame(root, interned.getShape());
+        Assertions.assertEquals("q", iterator.next().getKey());
+        Assertions.assertEquals("r", iterator.next().getKey());
+        Assertions.assertFalse(iterator.hasNext());
+        Assertions.assertEquals(Arrays.asList("q", "r"), new ArrayList<>(interned.keySet()));
+    }
+
+    @Test
+    public void testEntryAfterChanges() {
+        ShapeMap<String, Object> map = new ShapeMap<>();
+        map.put("id", 1);
+        map.put("name", "a");
+        Iterator<Map.Entry<String, Object>> iterator = map.entrySet().iterator();
+        iterator.next();
+        Map.Entry<String, Object> entry = iterator.next();
+        map.remove("id");
+        entry.setValue("b");
+        Assertions.assertEquals("b", map.get("name"));
+        for (int i = 0; i < ShapeMap.MAX_SLOTS; i++) {
+            map.put("key" + i, i);
+        }
+        entry.setValue("c");
+        Assertions.assertEquals("c", map.get("name"));
+    }
+
+    private ShapeMap<String, Object> person(int id, String firstName, String lastName) {
+        ShapeMap<String, Object> person = new ShapeMap<>();
+        person.put("id", id);
+        person.put("firstName", firstName);
+        person.put("lastName", lastName);
+        person.put("hobbies", Arrays.asList("Hiking", "Painting"));
+        person.put("age", 20 + id);
+        return person;
+    }
+
+}